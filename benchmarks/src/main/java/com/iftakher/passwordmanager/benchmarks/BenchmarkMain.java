@@ -0,0 +1,33 @@
+package com.iftakher.passwordmanager.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of benchmarks.jar. Runs JMH with the given arguments and, unless a result
+ * format was chosen, writes the results as JSON so runs from different releases can be
+ * compared:
+ *
+ *   java -jar benchmarks/target/benchmarks.jar                     all benchmarks
+ *   java -jar benchmarks/target/benchmarks.jar Crypto -p entries=1000
+ *   java -jar benchmarks/target/benchmarks.jar -rff results/1.0.0.json
+ */
+public final class BenchmarkMain {
+    private static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+    private BenchmarkMain() {}
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.contains("-rf")) {
+            options.add(0, "json");
+            options.add(0, "-rf");
+        }
+        if (!options.contains("-rff")) {
+            options.add(0, DEFAULT_RESULT_FILE);
+            options.add(0, "-rff");
+        }
+        org.openjdk.jmh.Main.main(options.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,87 @@
+package com.iftakher.passwordmanager.benchmarks;
+
+import com.iftakher.passwordmanager.models.PasswordCiphertext;
+import com.iftakher.passwordmanager.services.EncryptionService;
+import com.iftakher.passwordmanager.services.ProgressListener;
+import com.iftakher.passwordmanager.services.VaultAudit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.crypto.SecretKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-entry AES work: encrypting a typed password and decrypting one for reveal,
+ * plus decrypting every entry of a vault as export and key rotation do, and scoring
+ * every entry's strength as the password audit does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CryptoBenchmark {
+    @Param({"1000", "10000", "100000"})
+    int entries;
+
+    private SecretKey key;
+    private String password;
+    private EncryptionService.EncryptedData single;
+    private EncryptionService.EncryptedData[] vault;
+    private List<PasswordCiphertext> auditEntries;
+
+    @Setup
+    public void setUp() throws Exception {
+        key = EncryptionService.aesKey(new byte[32]);
+        Random random = new Random(42);
+        password = VaultFixture.password(random);
+        single = EncryptionService.encryptData(password, key);
+        vault = new EncryptionService.EncryptedData[entries];
+        for (int i = 0; i < entries; i++) {
+            vault[i] = EncryptionService.encryptData(VaultFixture.password(random), key);
+        }
+        auditEntries = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            auditEntries.add(new PasswordCiphertext(i + 1, "Entry " + i, "user" + i,
+                vault[i].getEncryptedData(), vault[i].getIv()));
+        }
+    }
+
+    @Benchmark
+    public EncryptionService.EncryptedData encryptOne() throws Exception {
+        return EncryptionService.encryptData(password, key);
+    }
+
+    @Benchmark
+    public String decryptOne() throws Exception {
+        return EncryptionService.decryptData(single, key);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void decryptVault(Blackhole blackhole) throws Exception {
+        for (EncryptionService.EncryptedData data : vault) {
+            blackhole.consume(EncryptionService.decryptToChars(data, key));
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<VaultAudit.Finding> auditVault() {
+        return VaultAudit.audit(auditEntries, key, ProgressListener.NONE);
+    }
+}
@@ -0,0 +1,98 @@
+package com.iftakher.passwordmanager.benchmarks;
+
+import com.iftakher.passwordmanager.models.PasswordEntry;
+import com.iftakher.passwordmanager.models.PasswordSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vault storage: the reads behind listing, paging, search and reveal, and the
+ * single-row writes behind the add, edit and delete dialogs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DatabaseBenchmark {
+    private static final int PAGE_SIZE = 200;
+
+    @Param({"1000", "10000", "100000"})
+    int entries;
+
+    private VaultFixture vault;
+    private PasswordEntry template;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        vault = VaultFixture.create(entries);
+        template = vault.entries.get(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        vault.close();
+    }
+
+    private long randomId() {
+        return vault.entries.get(ThreadLocalRandom.current().nextInt(entries)).getId();
+    }
+
+    @Benchmark
+    public PasswordEntry getPassword() throws Exception {
+        return vault.database.getPassword(randomId());
+    }
+
+    @Benchmark
+    public List<PasswordSummary> firstPage() throws Exception {
+        return vault.database.getSummariesPage(null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<PasswordSummary> search() throws Exception {
+        return vault.database.searchPasswords("mail");
+    }
+
+    @Benchmark
+    public int countPasswords() throws Exception {
+        return vault.database.countPasswords();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<PasswordEntry> getAllPasswords() throws Exception {
+        return vault.database.getAllPasswords();
+    }
+
+    @Benchmark
+    public void updatePassword() throws Exception {
+        PasswordEntry entry = new PasswordEntry(vault.entries.get(ThreadLocalRandom.current().nextInt(entries)));
+        entry.setNotes("Edited " + System.nanoTime());
+        vault.database.updatePassword(entry);
+    }
+
+    /** Add then delete, so the vault keeps its size across iterations. */
+    @Benchmark
+    public void addAndDelete() throws Exception {
+        PasswordEntry entry = new PasswordEntry(template.getTitle(), template.getWebsite(), template.getUsername(),
+            template.getEncryptedPassword(), template.getEncryptionIv(), template.getCategory(), template.getNotes());
+        entry.setPasswordFingerprint(template.getPasswordFingerprint());
+        vault.database.deletePassword(vault.database.addPassword(entry));
+    }
+}
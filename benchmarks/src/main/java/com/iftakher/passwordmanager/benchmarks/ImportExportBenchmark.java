@@ -0,0 +1,59 @@
+package com.iftakher.passwordmanager.benchmarks;
+
+import com.iftakher.passwordmanager.services.ImportExportService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole-vault export and import through the encrypted file format.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ImportExportBenchmark {
+    @Param({"1000", "10000", "100000"})
+    int entries;
+
+    private VaultFixture vault;
+    private String exportFile;
+    private String importFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        vault = VaultFixture.create(entries);
+        exportFile = vault.directory.resolve("export.enc").toString();
+        importFile = vault.directory.resolve("import.enc").toString();
+        ImportExportService.exportToFile(vault.database, importFile, vault.key, "benchmark");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        vault.close();
+    }
+
+    @Benchmark
+    public void export() throws Exception {
+        ImportExportService.exportToFile(vault.database, exportFile, vault.key, "benchmark");
+    }
+
+    @Benchmark
+    public int importFile() throws Exception {
+        return ImportExportService.importFromFile(importFile, vault.key, entry -> { });
+    }
+}
@@ -0,0 +1,52 @@
+package com.iftakher.passwordmanager.benchmarks;
+
+import com.iftakher.passwordmanager.services.EncryptionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.SecretKey;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Master password key derivation, the fixed cost of every unlock. A regression here
+ * is felt by every user on every login.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class KeyDerivationBenchmark {
+    private char[] password;
+    private byte[] salt;
+
+    @Setup
+    public void setUp() {
+        password = VaultFixture.MASTER_PASSWORD.toCharArray();
+        salt = EncryptionService.generateSalt();
+    }
+
+    @Benchmark
+    public byte[] pbkdf2() throws Exception {
+        return EncryptionService.pbkdf2(password, salt, EncryptionService.getKdfIterations(), 256);
+    }
+
+    @Benchmark
+    public SecretKey unlockKey() throws Exception {
+        return EncryptionService.generateKeyFromPassword(VaultFixture.MASTER_PASSWORD, salt);
+    }
+
+    @Benchmark
+    public byte[] hkdf() throws Exception {
+        return EncryptionService.hkdf(salt, salt, "benchmark", 32);
+    }
+}
@@ -0,0 +1,54 @@
+package com.iftakher.passwordmanager.benchmarks;
+
+import com.iftakher.passwordmanager.services.PasswordGeneratorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Password generation and strength assessment, both run on the FX thread as the user types.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PasswordGeneratorBenchmark {
+    private final String password = PasswordGeneratorService.generatePassword(20, true, true, true);
+
+    @Benchmark
+    public String generate() {
+        return PasswordGeneratorService.generatePassword(20, true, true, true);
+    }
+
+    @Benchmark
+    public char[] generateChars() {
+        return PasswordGeneratorService.generateChars(20, true, true, true);
+    }
+
+    @Benchmark
+    public char[] passphrase() {
+        return PasswordGeneratorService.generatePassphrase(6, '-', false, false);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<char[]> bulk1000() {
+        return PasswordGeneratorService.generateBulk(1000, () -> PasswordGeneratorService.generateChars(20, true, true, true));
+    }
+
+    @Benchmark
+    public String assessStrength() {
+        return PasswordGeneratorService.assessPasswordStrength(password);
+    }
+}
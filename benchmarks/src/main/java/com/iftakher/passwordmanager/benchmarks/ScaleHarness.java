@@ -0,0 +1,271 @@
+package com.iftakher.passwordmanager.benchmarks;
+
+import com.iftakher.passwordmanager.models.PasswordEntry;
+import com.iftakher.passwordmanager.models.PasswordSummary;
+import com.iftakher.passwordmanager.services.DatabaseService;
+import com.iftakher.passwordmanager.services.EncryptionService;
+import com.iftakher.passwordmanager.services.ImportExportService;
+import com.iftakher.passwordmanager.services.PasswordReuse;
+import com.iftakher.passwordmanager.services.ProgressListener;
+import com.iftakher.passwordmanager.services.UnlockService;
+
+import javax.crypto.SecretKey;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Headless scale test: builds a synthetic vault of production size and runs the app's
+ * workloads against it, reporting latency percentiles and peak heap per workload.
+ * Everything goes through the same services the UI uses; JavaFX is never loaded.
+ *
+ *   java -cp benchmarks/target/benchmarks.jar com.iftakher.passwordmanager.benchmarks.ScaleHarness \
+ *       --entries 200000 --duplicate-rate 0.2 --note-length 500
+ *
+ * Options (defaults in brackets):
+ *   --entries N             entries to generate [10000]
+ *   --categories MIX        weighted category mix, e.g. "Work=50,Email=50" [a personal mix]
+ *   --note-length N         characters per note [200]
+ *   --note-rate R           fraction of entries with a note [0.2]
+ *   --duplicate-rate R      fraction of entries reusing an earlier password [0.1]
+ *   --seed N                generator seed [42]
+ *   --iterations N          timed runs per workload [10]
+ *   --workloads LIST        comma separated subset of unlock,load,search,edit,export,import,rekey,
+ *                           reused [all]
+ *   --db PATH               keep the vault at PATH; an existing vault there is reused
+ *
+ * Run it with the heap you want to test, e.g. -Xmx256m, to see whether large vaults fit.
+ */
+public final class ScaleHarness {
+    private static final String PASSWORD = VaultFixture.MASTER_PASSWORD;
+    private static final String OTHER_PASSWORD = PASSWORD + "-rotated";
+    private static final List<String> ALL_WORKLOADS =
+        List.of("unlock", "load", "search", "edit", "export", "import", "rekey", "reused");
+    private static final String[] QUERIES = {"mail", "bank", "work", "example", "zz-no-match", "user1"};
+    private static final int LOAD_PAGE_SIZE = 1000;
+    // Each unlock and re-key runs the full KDF, so a few runs are enough
+    private static final int MAX_KDF_ITERATIONS = 3;
+
+    @FunctionalInterface
+    private interface Workload {
+        void run(int iteration) throws Exception;
+    }
+
+    private final Map<String, String> options;
+    private final int iterations;
+    private final Random random;
+    private Path workDirectory;
+    private DatabaseService database;
+    private String password = PASSWORD;
+    private SecretKey key;
+    private long[] ids;
+
+    private ScaleHarness(Map<String, String> options) {
+        this.options = options;
+        this.iterations = Integer.parseInt(options.getOrDefault("iterations", "10"));
+        this.random = new Random(Long.parseLong(options.getOrDefault("seed", "42")));
+    }
+
+    public static void main(String[] args) throws Exception {
+        new ScaleHarness(parseOptions(args)).run();
+    }
+
+    private void run() throws Exception {
+        List<String> workloads = options.containsKey("workloads")
+            ? Arrays.asList(options.get("workloads").split(","))
+            : ALL_WORKLOADS;
+        for (String workload : workloads) {
+            if (!ALL_WORKLOADS.contains(workload)) {
+                throw new IllegalArgumentException("Unknown workload: " + workload);
+            }
+        }
+
+        workDirectory = Files.createTempDirectory("passhelper-scale");
+        Path vaultFile = options.containsKey("db")
+            ? Paths.get(options.get("db"))
+            : workDirectory.resolve("passwords.db");
+        try {
+            open(vaultFile);
+            System.out.printf(Locale.ROOT, "%n%-8s %6s %10s %10s %10s %10s %12s%n",
+                "workload", "runs", "p50 ms", "p90 ms", "p99 ms", "max ms", "peak heap MB");
+            for (String workload : workloads) {
+                report(workload, workload(workload));
+            }
+            if (!password.equals(PASSWORD)) {
+                // Leave a kept vault openable by the next run
+                new UnlockService(database).changeMasterPassword(password, PASSWORD, ProgressListener.NONE);
+            }
+        } finally {
+            if (database != null) {
+                database.close();
+            }
+            VaultFixture.deleteRecursively(workDirectory);
+        }
+    }
+
+    /**
+     * Open the vault, generating the synthetic entries if it is empty.
+     */
+    private void open(Path vaultFile) throws Exception {
+        database = new DatabaseService(vaultFile);
+        key = new UnlockService(database).unlock(password, ProgressListener.NONE);
+        if (key == null) {
+            throw new IllegalStateException("Existing vault at " + vaultFile + " does not use the harness password");
+        }
+
+        if (database.countPasswords() == 0) {
+            SyntheticVault vault = new SyntheticVault(
+                Integer.parseInt(options.getOrDefault("entries", "10000")),
+                SyntheticVault.parseCategoryMix(options.getOrDefault("categories", SyntheticVault.DEFAULT_CATEGORY_MIX)),
+                Integer.parseInt(options.getOrDefault("note-length", "200")),
+                Double.parseDouble(options.getOrDefault("note-rate", "0.2")),
+                Double.parseDouble(options.getOrDefault("duplicate-rate", "0.1")),
+                Long.parseLong(options.getOrDefault("seed", "42")));
+            long start = System.nanoTime();
+            List<PasswordEntry> entries = vault.generate(key);
+            database.addPasswords(entries, ProgressListener.NONE);
+            System.out.printf(Locale.ROOT, "Generated %d entries in %.0f ms (%s)%n",
+                entries.size(), millis(System.nanoTime() - start), vaultFile);
+        }
+
+        List<PasswordSummary> summaries = loadAll();
+        ids = summaries.stream().mapToLong(PasswordSummary::getId).toArray();
+        System.out.printf(Locale.ROOT, "Vault holds %d entries, %.1f MB on disk%n",
+            ids.length, Files.size(vaultFile) / 1e6);
+    }
+
+    private Workload workload(String name) throws Exception {
+        switch (name) {
+            case "unlock":
+                return i -> {
+                    if (new UnlockService(database).unlock(password, ProgressListener.NONE) == null) {
+                        throw new IllegalStateException("Unlock rejected the master password");
+                    }
+                };
+            case "load":
+                return i -> loadAll();
+            case "search":
+                return i -> database.searchPasswords(QUERIES[i % QUERIES.length]);
+            case "edit":
+                return i -> {
+                    PasswordEntry entry = database.getPassword(randomId());
+                    EncryptionService.EncryptedData secret =
+                        EncryptionService.encryptData(VaultFixture.password(random), key);
+                    entry.setEncryptedPassword(secret.getEncryptedData());
+                    entry.setEncryptionIv(secret.getIv());
+                    entry.setPasswordFingerprint(secret.getFingerprint());
+                    database.updatePassword(entry);
+                };
+            case "export":
+                return i -> ImportExportService.exportToFile(database,
+                    workDirectory.resolve("export.enc").toString(), key, "scale-harness");
+            case "import":
+                // Untimed: write the export the timed runs read back
+                Path export = workDirectory.resolve("import.enc");
+                ImportExportService.exportToFile(database, export.toString(), key, "scale-harness");
+                return i -> importInto(export);
+            case "rekey":
+                return i -> {
+                    String next = password.equals(PASSWORD) ? OTHER_PASSWORD : PASSWORD;
+                    key = new UnlockService(database).changeMasterPassword(password, next, ProgressListener.NONE);
+                    password = next;
+                };
+            case "reused":
+                // Untimed: vaults written before fingerprints existed get them once
+                PasswordReuse.fingerprintMissing(database, key);
+                return i -> database.findReusedPasswords();
+            default:
+                throw new IllegalArgumentException("Unknown workload: " + name);
+        }
+    }
+
+    /**
+     * Walk the whole vault in table order, as the main window does for small vaults.
+     */
+    private List<PasswordSummary> loadAll() throws Exception {
+        List<PasswordSummary> all = new ArrayList<>();
+        List<PasswordSummary> page = database.getSummariesPage(null, LOAD_PAGE_SIZE);
+        while (!page.isEmpty()) {
+            all.addAll(page);
+            page = database.getSummariesPage(DatabaseService.SortKey.of(page.get(page.size() - 1)), LOAD_PAGE_SIZE);
+        }
+        return all;
+    }
+
+    private void importInto(Path export) throws Exception {
+        Path scratch = Files.createTempDirectory(workDirectory, "import");
+        DatabaseService target = new DatabaseService(scratch.resolve("passwords.db"));
+        try (ImportExportService.ImportReader reader = ImportExportService.openImport(export.toString(), key)) {
+            target.addPasswords(reader, 1000, ids.length, ProgressListener.NONE);
+        } finally {
+            target.close();
+        }
+        VaultFixture.deleteRecursively(scratch);
+    }
+
+    private long randomId() {
+        return ids[random.nextInt(ids.length)];
+    }
+
+    private void report(String name, Workload workload) throws Exception {
+        int runs = name.equals("unlock") || name.equals("rekey")
+            ? Math.min(iterations, MAX_KDF_ITERATIONS)
+            : iterations;
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+
+        long[] nanos = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            workload.run(i);
+            nanos[i] = System.nanoTime() - start;
+        }
+
+        // Pools peak at different moments, so the sum is an upper bound
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peakHeap += pool.getPeakUsage().getUsed();
+        }
+        Arrays.sort(nanos);
+        System.out.printf(Locale.ROOT, "%-8s %6d %10.2f %10.2f %10.2f %10.2f %12.1f%n", name, runs,
+            millis(percentile(nanos, 50)), millis(percentile(nanos, 90)), millis(percentile(nanos, 99)),
+            millis(nanos[runs - 1]), peakHeap / 1e6);
+    }
+
+    /** Nearest-rank percentile of sorted values. */
+    private static long percentile(long[] sorted, int percent) {
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                throw new IllegalArgumentException("Expected --option value, got '" + args[i] + "'");
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        return options;
+    }
+}
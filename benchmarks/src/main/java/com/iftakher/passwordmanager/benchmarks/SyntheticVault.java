@@ -0,0 +1,131 @@
+package com.iftakher.passwordmanager.benchmarks;
+
+import com.iftakher.passwordmanager.models.PasswordEntry;
+import com.iftakher.passwordmanager.services.EncryptionService;
+
+import javax.crypto.SecretKey;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates realistic-looking vault entries from a seed, so a vault of any size can be
+ * rebuilt exactly on any machine.
+ *
+ * Entries cluster on a pool of sites the way real vaults do (several accounts per
+ * site), categories follow a weighted mix, a fraction of entries carry notes of a
+ * given size, and a fraction reuse the password of an earlier entry.
+ */
+public final class SyntheticVault {
+    /** Roughly what a personal vault looks like. */
+    public static final String DEFAULT_CATEGORY_MIX =
+        "General=30,Email=15,Banking=10,Social Media=15,Shopping=15,Work=10,Other=5";
+
+    private static final String[] WORDS = {
+        "alpha", "bank", "cloud", "delta", "mail", "forum", "games", "health", "insurance",
+        "jobs", "kitchen", "library", "music", "news", "office", "photos", "quiz", "router",
+        "school", "travel", "utility", "video", "wallet", "xbox", "yoga", "zone"
+    };
+    private static final String NOTE_TEXT =
+        "Security question answers and recovery codes are stored offline. ";
+
+    private final int entries;
+    private final Map<String, Integer> categoryWeights;
+    private final int noteLength;
+    private final double noteRate;
+    private final double duplicateRate;
+    private final long seed;
+
+    public SyntheticVault(int entries, Map<String, Integer> categoryWeights, int noteLength,
+                          double noteRate, double duplicateRate, long seed) {
+        if (entries < 0) {
+            throw new IllegalArgumentException("Entry count must not be negative");
+        }
+        if (categoryWeights.isEmpty() || categoryWeights.values().stream().anyMatch(w -> w < 0)
+                || categoryWeights.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("Category weights must be non-negative and not all zero");
+        }
+        if (noteRate < 0 || noteRate > 1 || duplicateRate < 0 || duplicateRate > 1) {
+            throw new IllegalArgumentException("Rates must be between 0 and 1");
+        }
+        this.entries = entries;
+        this.categoryWeights = new LinkedHashMap<>(categoryWeights);
+        this.noteLength = noteLength;
+        this.noteRate = noteRate;
+        this.duplicateRate = duplicateRate;
+        this.seed = seed;
+    }
+
+    /**
+     * Parse a category mix such as "General=30,Email=15".
+     */
+    public static Map<String, Integer> parseCategoryMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String part : mix.split(",")) {
+            int eq = part.lastIndexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected category=weight, got '" + part + "'");
+            }
+            weights.put(part.substring(0, eq).trim(), Integer.parseInt(part.substring(eq + 1).trim()));
+        }
+        return weights;
+    }
+
+    public int getEntries() { return entries; }
+
+    /**
+     * Build every entry with its password encrypted under the given key.
+     */
+    public List<PasswordEntry> generate(SecretKey key) throws Exception {
+        Random random = new Random(seed);
+        String[] categories = categoryWeights.keySet().toArray(new String[0]);
+        int[] cumulative = new int[categories.length];
+        int totalWeight = 0;
+        for (int i = 0; i < categories.length; i++) {
+            totalWeight += categoryWeights.get(categories[i]);
+            cumulative[i] = totalWeight;
+        }
+        int sites = Math.max(1, entries / 3);
+        String note = note(noteLength);
+
+        List<PasswordEntry> generated = new ArrayList<>(entries);
+        List<String> passwords = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            String site = WORDS[random.nextInt(WORDS.length)] + random.nextInt(sites);
+            String password = !passwords.isEmpty() && random.nextDouble() < duplicateRate
+                ? passwords.get(random.nextInt(passwords.size()))
+                : VaultFixture.password(random);
+            passwords.add(password);
+
+            int pick = random.nextInt(totalWeight);
+            int category = 0;
+            while (cumulative[category] <= pick) {
+                category++;
+            }
+
+            EncryptionService.EncryptedData secret = EncryptionService.encryptData(password, key);
+            PasswordEntry entry = new PasswordEntry(capitalize(site) + " " + (i % 7 == 0 ? "work" : "personal"),
+                "https://" + site + ".example.com", "user" + random.nextInt(entries) + "@example.com",
+                secret.getEncryptedData(), secret.getIv(), categories[category],
+                random.nextDouble() < noteRate ? note : "");
+            entry.setPasswordFingerprint(secret.getFingerprint());
+            generated.add(entry);
+        }
+        return generated;
+    }
+
+    private static String note(int length) {
+        StringBuilder note = new StringBuilder(length);
+        while (note.length() < length) {
+            note.append(NOTE_TEXT);
+        }
+        note.setLength(length);
+        return note.toString();
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+}
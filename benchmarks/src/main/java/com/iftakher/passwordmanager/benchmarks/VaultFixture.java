@@ -0,0 +1,71 @@
+package com.iftakher.passwordmanager.benchmarks;
+
+import com.iftakher.passwordmanager.models.PasswordEntry;
+import com.iftakher.passwordmanager.services.DatabaseService;
+import com.iftakher.passwordmanager.services.EncryptionService;
+import com.iftakher.passwordmanager.services.ProgressListener;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Scratch vault for benchmarks: a temporary directory holding a database filled with
+ * a fixed, seeded {@link SyntheticVault}, so every run measures the same data.
+ */
+final class VaultFixture implements AutoCloseable {
+    static final String MASTER_PASSWORD = "benchmark-master-password";
+
+    final Path directory;
+    final SecretKey key;
+    final DatabaseService database;
+    final List<PasswordEntry> entries;
+
+    private VaultFixture(Path directory, SecretKey key, DatabaseService database, List<PasswordEntry> entries) {
+        this.directory = directory;
+        this.key = key;
+        this.database = database;
+        this.entries = entries;
+    }
+
+    static VaultFixture create(int size) throws Exception {
+        Path directory = Files.createTempDirectory("passhelper-bench");
+        SecretKey key = EncryptionService.generateKeyFromPassword(MASTER_PASSWORD, EncryptionService.generateSalt());
+        DatabaseService database = new DatabaseService(directory.resolve("passwords.db"));
+        List<PasswordEntry> entries = entries(size, key);
+        database.addPasswords(entries, ProgressListener.NONE);
+        return new VaultFixture(directory, key, database, entries);
+    }
+
+    static List<PasswordEntry> entries(int size, SecretKey key) throws Exception {
+        return new SyntheticVault(size, SyntheticVault.parseCategoryMix(SyntheticVault.DEFAULT_CATEGORY_MIX),
+            60, 0.1, 0.0, 42).generate(key);
+    }
+
+    static String password(Random random) {
+        char[] chars = new char[16];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('!' + random.nextInt(94));
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public void close() throws IOException {
+        database.close();
+        deleteRecursively(directory);
+    }
+
+    static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
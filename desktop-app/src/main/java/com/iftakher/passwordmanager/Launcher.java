@@ -1,12 +1,20 @@
 package com.iftakher.passwordmanager;
 
+import com.iftakher.passwordmanager.cli.VaultCli;
+
 /**
  * Launcher class for JavaFX application.
  * This is required when packaging JavaFX apps in a fat JAR.
  * The launcher doesn't extend Application to avoid module issues.
+ *
+ * When the first argument is a CLI command (see {@link VaultCli}) the command runs
+ * headless instead, and no JavaFX class is ever loaded.
  */
 public class Launcher {
     public static void main(String[] args) {
+        if (args.length > 0 && VaultCli.isCommand(args[0])) {
+            System.exit(VaultCli.run(args));
+        }
         Main.main(args);
     }
 }
@@ -0,0 +1,491 @@
+package com.iftakher.passwordmanager.cli;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.iftakher.passwordmanager.models.PasswordEntry;
+import com.iftakher.passwordmanager.models.PasswordSummary;
+import com.iftakher.passwordmanager.services.DatabaseService;
+import com.iftakher.passwordmanager.services.EncryptionService;
+import com.iftakher.passwordmanager.services.ImportExportService;
+import com.iftakher.passwordmanager.services.PasswordGeneratorService;
+import com.iftakher.passwordmanager.services.PasswordReuse;
+import com.iftakher.passwordmanager.services.ProgressListener;
+import com.iftakher.passwordmanager.services.UnlockService;
+import com.iftakher.passwordmanager.services.VaultAudit;
+
+import javax.crypto.SecretKey;
+import java.io.BufferedReader;
+import java.io.Console;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Headless command line for scripted vault operations. Runs on the services alone and
+ * never loads JavaFX, so a command costs one master password derivation plus the query.
+ *
+ * Results go to stdout; the services' own status messages are moved to stderr so they
+ * don't end up in a script's output.
+ */
+public final class VaultCli {
+    public static final Set<String> COMMANDS =
+        Set.of("list", "search", "get", "add", "bulk-add", "export", "import", "generate", "audit", "reused", "help");
+
+    static final String PASSWORD_ENV = "PASSHELPER_MASTER_PASSWORD";
+
+    private static final int EXIT_OK = 0;
+    private static final int EXIT_ERROR = 1;
+    private static final int EXIT_USAGE = 2;
+    private static final int EXIT_WRONG_PASSWORD = 3;
+
+    private static final String USAGE = """
+        Usage: java -jar password-manager-desktop.jar <command> [options]
+
+        Commands:
+          list                          list every entry
+          search <words>                ranked search over all fields
+          get <id>                      print an entry's password
+          add --title T --username U [--website W] [--category C] [--notes N]
+                                        add an entry; the password is read from stdin
+          bulk-add                      add entries from stdin, one JSON object per line:
+                                        {"title":..,"username":..,"password":..,"website":..,"category":..,"notes":..}
+          export <file>                 write an encrypted export
+          import <file>                 import an encrypted export
+          generate [--count N] [--length L] [--charset upper,digits,symbols] [--words W]
+                                        print N new passwords of 8-128 characters, or
+                                        passphrases of 4-20 words; needs no master password
+          audit [--limit N]             score every password, weakest first
+          reused                        list entries that share a password, one group per line
+
+        Options:
+          --db <file>                   vault to open (default ~/.password-manager/passwords.db);
+                                        it must exist and have a master password set
+          --json                        print list, search, get, audit and reused results as JSON
+
+        The master password is read from $PASSHELPER_MASTER_PASSWORD, or prompted for
+        on the terminal. Exit status: 0 ok, 1 error, 2 usage, 3 wrong master password.
+        """;
+
+    /** Fields of one bulk-add line. */
+    private static class NewEntry {
+        String title;
+        String website;
+        String username;
+        String password;
+        String category;
+        String notes;
+    }
+
+    private static class UsageException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        UsageException(String message) {
+            super(message);
+        }
+    }
+
+    private final PrintStream out;
+    private final PrintStream err;
+    private final Gson gson = new Gson();
+    private final Map<String, String> options = new LinkedHashMap<>();
+    private final List<String> arguments = new ArrayList<>();
+    private boolean json;
+
+    private VaultCli(PrintStream out, PrintStream err) {
+        this.out = out;
+        this.err = err;
+    }
+
+    public static boolean isCommand(String arg) {
+        return COMMANDS.contains(arg);
+    }
+
+    /**
+     * Run one command and return its exit status.
+     */
+    public static int run(String[] args) {
+        PrintStream out = System.out;
+        System.setOut(System.err);
+        try {
+            return new VaultCli(out, System.err).execute(args);
+        } finally {
+            out.flush();
+            System.setOut(out);
+        }
+    }
+
+    private int execute(String[] args) {
+        String command = args[0];
+        try {
+            parse(Arrays.copyOfRange(args, 1, args.length));
+            if (command.equals("help")) {
+                out.print(USAGE);
+                return EXIT_OK;
+            }
+            if (command.equals("generate")) {
+                generate();
+                return EXIT_OK;
+            }
+        } catch (UsageException e) {
+            err.println(e.getMessage());
+            err.print(USAGE);
+            return EXIT_USAGE;
+        }
+
+        // Never create a vault from the command line: a mistyped --db would silently get a
+        // new one, and its first unlock would make the scripted password the master password
+        Path databaseFile = options.containsKey("db")
+            ? Paths.get(options.get("db"))
+            : DatabaseService.getDefaultDatabaseFile();
+        if (!Files.isRegularFile(databaseFile)) {
+            err.println("No vault at " + databaseFile);
+            return EXIT_ERROR;
+        }
+        DatabaseService databaseService = new DatabaseService(databaseFile);
+        try {
+            UnlockService unlockService = new UnlockService(databaseService);
+            if (!unlockService.isMasterPasswordSet()) {
+                err.println("Vault at " + databaseFile + " has no master password; set one in the app first");
+                return EXIT_ERROR;
+            }
+            String masterPassword = readMasterPassword();
+            SecretKey key = unlockService.unlock(masterPassword, ProgressListener.NONE);
+            if (key == null) {
+                err.println("Invalid master password");
+                return EXIT_WRONG_PASSWORD;
+            }
+            switch (command) {
+                case "list" -> printSummaries(databaseService.searchPasswords(""));
+                case "search" -> printSummaries(databaseService.searchPasswords(String.join(" ", arguments)));
+                case "get" -> get(databaseService, key);
+                case "add" -> add(databaseService, key);
+                case "bulk-add" -> bulkAdd(databaseService, key);
+                case "export" -> {
+                    String file = requireArgument("export file");
+                    ImportExportService.exportToFile(databaseService, file, key,
+                        System.getProperty("os.name") + " - CLI");
+                    out.println(databaseService.countPasswords());
+                }
+                case "import" -> {
+                    String file = requireArgument("import file");
+                    if (!ImportExportService.isExportFile(file)) {
+                        throw new UsageException("Not a password export file: " + file);
+                    }
+                    // Exports made before the vault was migrated are under the legacy key
+                    SecretKey legacyKey = ImportExportService.needsLegacyKey(file, key)
+                        ? unlockService.legacyExportKey(masterPassword)
+                        : null;
+                    try (ImportExportService.ImportReader reader =
+                             ImportExportService.openImport(file, key, legacyKey)) {
+                        out.println(databaseService.addPasswords(reader, DatabaseService.DEFAULT_BULK_CHUNK_SIZE,
+                            -1, ProgressListener.NONE));
+                    }
+                }
+                case "audit" -> audit(databaseService, key);
+                case "reused" -> reused(databaseService, key);
+                default -> throw new IllegalStateException("Unhandled command " + command);
+            }
+            return EXIT_OK;
+        } catch (UsageException e) {
+            err.println(e.getMessage());
+            return EXIT_USAGE;
+        } catch (Exception e) {
+            err.println("Error: " + e.getMessage());
+            return EXIT_ERROR;
+        } finally {
+            databaseService.close();
+        }
+    }
+
+    private void parse(String[] args) throws UsageException {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--json")) {
+                json = true;
+            } else if (arg.startsWith("--")) {
+                if (i + 1 == args.length) {
+                    throw new UsageException("Missing value for " + arg);
+                }
+                options.put(arg.substring(2), args[++i]);
+            } else {
+                arguments.add(arg);
+            }
+        }
+    }
+
+    private String requireArgument(String name) throws UsageException {
+        if (arguments.size() != 1) {
+            throw new UsageException("Expected one argument: " + name);
+        }
+        return arguments.get(0);
+    }
+
+    private String requireOption(String name) throws UsageException {
+        String value = options.get(name);
+        if (value == null || value.isBlank()) {
+            throw new UsageException("Missing --" + name);
+        }
+        return value;
+    }
+
+    private String readMasterPassword() throws UsageException {
+        String password = System.getenv(PASSWORD_ENV);
+        if (password != null) {
+            return password;
+        }
+        Console console = System.console();
+        if (console == null) {
+            throw new UsageException("Set " + PASSWORD_ENV + " or run from a terminal");
+        }
+        char[] typed = console.readPassword("Master password: ");
+        if (typed == null) {
+            throw new UsageException("No master password given");
+        }
+        password = new String(typed);
+        Arrays.fill(typed, '\0');
+        return password;
+    }
+
+    private void printSummaries(List<PasswordSummary> summaries) {
+        if (json) {
+            out.println(gson.toJson(summaries));
+            return;
+        }
+        for (PasswordSummary summary : summaries) {
+            out.println(summary.getId() + "\t" + tsv(summary.getTitle()) + "\t" + tsv(summary.getUsername())
+                + "\t" + tsv(summary.getWebsite()) + "\t" + tsv(summary.getCategory()));
+        }
+    }
+
+    private void get(DatabaseService databaseService, SecretKey key) throws Exception {
+        long id;
+        try {
+            id = Long.parseLong(requireArgument("entry id"));
+        } catch (NumberFormatException e) {
+            throw new UsageException("Entry id must be a number");
+        }
+        PasswordEntry entry = databaseService.getPassword(id);
+        if (entry == null) {
+            throw new IllegalArgumentException("No entry with id " + id);
+        }
+        String password = EncryptionService.decryptData(
+            new EncryptionService.EncryptedData(entry.getEncryptedPassword(), entry.getEncryptionIv()), key);
+        if (!json) {
+            out.println(password);
+            return;
+        }
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("id", entry.getId());
+        fields.put("title", entry.getTitle());
+        fields.put("website", entry.getWebsite());
+        fields.put("username", entry.getUsername());
+        fields.put("password", password);
+        fields.put("category", entry.getCategory());
+        fields.put("notes", entry.getNotes());
+        fields.put("createdAt", entry.getCreatedAt());
+        fields.put("updatedAt", entry.getUpdatedAt());
+        out.println(gson.toJson(fields));
+    }
+
+    /**
+     * Print freshly generated credentials, one per line, generated in parallel.
+     */
+    private void generate() throws UsageException {
+        int count = intOption("count", 1);
+        Supplier<char[]> generator;
+        try {
+            if (options.containsKey("words")) {
+                int words = intOption("words", 0);
+                generator = () -> PasswordGeneratorService.generatePassphrase(words, '-', false, false);
+            } else {
+                int length = intOption("length", 20);
+                List<String> charset = Arrays.asList(options.getOrDefault("charset", "upper,digits,symbols").split(","));
+                boolean upper = charset.contains("upper");
+                boolean digits = charset.contains("digits");
+                boolean symbols = charset.contains("symbols");
+                generator = () -> PasswordGeneratorService.generateChars(length, upper, digits, symbols);
+            }
+            // Reject bad settings before the parallel run
+            Arrays.fill(generator.get(), '\0');
+        } catch (IllegalArgumentException e) {
+            throw new UsageException(e.getMessage());
+        }
+        for (char[] credential : PasswordGeneratorService.generateBulk(count, generator)) {
+            out.println(credential);
+            Arrays.fill(credential, '\0');
+        }
+    }
+
+    /**
+     * Print the strength of every password, weakest first, optionally only the first N.
+     */
+    private void audit(DatabaseService databaseService, SecretKey key) throws Exception {
+        int limit = intOption("limit", Integer.MAX_VALUE);
+        List<VaultAudit.Finding> findings = VaultAudit.audit(databaseService, key, ProgressListener.NONE);
+        findings = findings.subList(0, Math.min(Math.max(limit, 0), findings.size()));
+        if (json) {
+            List<Map<String, Object>> rows = new ArrayList<>(findings.size());
+            for (VaultAudit.Finding finding : findings) {
+                Map<String, Object> fields = new LinkedHashMap<>();
+                fields.put("id", finding.getId());
+                fields.put("title", finding.getTitle());
+                fields.put("username", finding.getUsername());
+                fields.put("score", finding.getStrength().getScore());
+                fields.put("entropyBits", Math.round(finding.getStrength().getEntropyBits()));
+                fields.put("label", finding.getStrength().getLabel());
+                fields.put("reasons", finding.getStrength().getReasons());
+                rows.add(fields);
+            }
+            out.println(gson.toJson(rows));
+            return;
+        }
+        for (VaultAudit.Finding finding : findings) {
+            out.println(finding.getId() + "\t" + finding.getStrength().getScore()
+                + "\t" + finding.getStrength().getLabel() + "\t" + tsv(finding.getTitle())
+                + "\t" + tsv(finding.getUsername()) + "\t" + String.join("; ", finding.getStrength().getReasons()));
+        }
+    }
+
+    /**
+     * Print each group of entries that share a password as one line of tab separated
+     * "id:title" cells, largest group first.
+     */
+    private void reused(DatabaseService databaseService, SecretKey key) throws Exception {
+        List<List<PasswordSummary>> groups = PasswordReuse.find(databaseService, key);
+        if (json) {
+            out.println(gson.toJson(groups));
+            return;
+        }
+        for (List<PasswordSummary> group : groups) {
+            StringBuilder line = new StringBuilder();
+            for (PasswordSummary summary : group) {
+                if (line.length() > 0) {
+                    line.append('\t');
+                }
+                line.append(summary.getId()).append(':').append(tsv(summary.getTitle()));
+            }
+            out.println(line);
+        }
+    }
+
+    private int intOption(String name, int defaultValue) throws UsageException {
+        String value = options.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new UsageException("--" + name + " must be a number");
+        }
+    }
+
+    private void add(DatabaseService databaseService, SecretKey key) throws Exception {
+        NewEntry fields = new NewEntry();
+        fields.title = requireOption("title");
+        fields.username = requireOption("username");
+        fields.website = options.getOrDefault("website", "");
+        fields.category = options.getOrDefault("category", "General");
+        fields.notes = options.getOrDefault("notes", "");
+
+        BufferedReader stdin = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        fields.password = stdin.readLine();
+        if (fields.password == null || fields.password.isEmpty()) {
+            throw new UsageException("Expected the password on stdin");
+        }
+        out.println(databaseService.addPassword(toEntry(fields, key)));
+    }
+
+    /**
+     * Stream entries from stdin into one transaction, so either every line is added or,
+     * on the first bad line, none are.
+     */
+    private void bulkAdd(DatabaseService databaseService, SecretKey key) throws Exception {
+        BufferedReader stdin = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        Iterable<PasswordEntry> entries = () -> new Iterator<>() {
+            private int lineNumber;
+            private String line = nextLine();
+
+            private String nextLine() {
+                try {
+                    String next;
+                    do {
+                        next = stdin.readLine();
+                        lineNumber++;
+                    } while (next != null && next.isBlank());
+                    return next;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return line != null;
+            }
+
+            @Override
+            public PasswordEntry next() {
+                if (line == null) {
+                    throw new NoSuchElementException();
+                }
+                try {
+                    NewEntry fields = gson.fromJson(line, NewEntry.class);
+                    if (fields == null || isEmpty(fields.title) || isEmpty(fields.username)
+                            || isEmpty(fields.password)) {
+                        throw new IllegalArgumentException("title, username and password are required");
+                    }
+                    PasswordEntry entry = toEntry(fields, key);
+                    line = nextLine();
+                    return entry;
+                } catch (JsonParseException | IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage(), e);
+                } catch (Exception e) {
+                    throw new IllegalStateException("Line " + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        };
+        out.println(databaseService.addPasswords(entries, DatabaseService.DEFAULT_BULK_CHUNK_SIZE, -1,
+            ProgressListener.NONE));
+    }
+
+    private static PasswordEntry toEntry(NewEntry fields, SecretKey key) throws Exception {
+        char[] password = fields.password.toCharArray();
+        try {
+            EncryptionService.EncryptedData secret = EncryptionService.encryptChars(password, key);
+            PasswordEntry entry = new PasswordEntry(fields.title, orEmpty(fields.website), fields.username,
+                secret.getEncryptedData(), secret.getIv(),
+                isEmpty(fields.category) ? "General" : fields.category, orEmpty(fields.notes));
+            entry.setPasswordFingerprint(secret.getFingerprint());
+            return entry;
+        } finally {
+            Arrays.fill(password, '\0');
+        }
+    }
+
+    private static String tsv(String value) {
+        return value == null ? "" : value.replace('\t', ' ').replace('\n', ' ');
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.isEmpty();
+    }
+
+    private static String orEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
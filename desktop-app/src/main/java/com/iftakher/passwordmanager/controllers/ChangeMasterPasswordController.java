@@ -1,20 +1,28 @@
 package com.iftakher.passwordmanager.controllers;
 
 import com.iftakher.passwordmanager.services.DatabaseService;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
+import javafx.scene.control.Button;
 import javafx.scene.control.PasswordField;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.Alert;
 import javafx.stage.Stage;
 
+import javax.crypto.SecretKey;
+
 public class ChangeMasterPasswordController {
     @FXML private PasswordField currentPasswordField;
     @FXML private PasswordField newPasswordField;
     @FXML private PasswordField confirmPasswordField;
+    @FXML private ProgressBar progressBar;
+    @FXML private Button okButton;
+    @FXML private Button cancelButton;
 
     private Stage dialogStage;
     private DatabaseService databaseService;
     private boolean okClicked = false;
-    private String newPassword;
+    private SecretKey newKey;
 
     public void setDialogStage(Stage dialogStage) {
         this.dialogStage = dialogStage;
@@ -28,8 +36,11 @@ public class ChangeMasterPasswordController {
         return okClicked;
     }
 
-    public String getNewPassword() {
-        return newPassword;
+    /**
+     * The vault key derived from the new master password, available once OK succeeded.
+     */
+    public SecretKey getNewKey() {
+        return newKey;
     }
 
     @FXML
@@ -51,18 +62,48 @@ public class ChangeMasterPasswordController {
             return;
         }
 
-        try {
-            boolean ok = databaseService.changeMasterPassword(current, next);
-            if (ok) {
-                this.newPassword = next;
+        // Re-encrypting a large vault takes a while, so run it off the FX thread
+        Task<SecretKey> task = new Task<>() {
+            @Override
+            protected SecretKey call() {
+                return databaseService.changeMasterPassword(current, next, this::updateProgress);
+            }
+        };
+        task.setOnSucceeded(e -> {
+            setBusy(false);
+            if (task.getValue() != null) {
+                this.newKey = task.getValue();
                 this.okClicked = true;
                 dialogStage.close();
             } else {
                 showAlert("Current master password is incorrect or change failed");
             }
-        } catch (Exception e) {
-            showAlert("Error changing master password: " + e.getMessage());
+        });
+        task.setOnFailed(e -> {
+            setBusy(false);
+            showAlert("Error changing master password: " + task.getException().getMessage());
+        });
+
+        progressBar.progressProperty().bind(task.progressProperty());
+        setBusy(true);
+        Thread thread = new Thread(task, "change-master-password");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void setBusy(boolean busy) {
+        if (!busy) {
+            progressBar.progressProperty().unbind();
         }
+        // Keep the dialog open until the vault is consistent again
+        dialogStage.setOnCloseRequest(busy ? event -> event.consume() : null);
+        progressBar.setVisible(busy);
+        progressBar.setManaged(busy);
+        okButton.setDisable(busy);
+        cancelButton.setDisable(busy);
+        currentPasswordField.setDisable(busy);
+        newPasswordField.setDisable(busy);
+        confirmPasswordField.setDisable(busy);
     }
 
     @FXML
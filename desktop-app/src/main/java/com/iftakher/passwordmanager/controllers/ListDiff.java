@@ -0,0 +1,138 @@
+package com.iftakher.passwordmanager.controllers;
+
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Turns an ObservableList into a copy of a new list with as few range edits as
+ * possible, so the table only re-renders rows that actually changed.
+ *
+ * Rows are matched by key. Rows missing from the new list are removed, rows that
+ * changed position are removed and re-inserted (the longest run of rows that kept
+ * their relative order stays put), new rows are inserted in contiguous runs, and
+ * rows whose object was replaced are set in place. When the edit script would be
+ * larger than a plain replace, the list is simply replaced.
+ */
+public final class ListDiff {
+    private static final int MAX_EDITS = 256;
+
+    private ListDiff() {}
+
+    public static <T> void apply(ObservableList<T> target, List<T> next, ToLongFunction<T> key) {
+        if (target.isEmpty() || next.isEmpty()) {
+            target.setAll(next);
+            return;
+        }
+
+        Map<Long, Integer> positions = new HashMap<>(next.size() * 2);
+        for (int i = 0; i < next.size(); i++) {
+            positions.put(key.applyAsLong(next.get(i)), i);
+        }
+
+        // Position of every current row in the new list, or -1 if it is gone
+        int[] targetPositions = new int[target.size()];
+        for (int i = 0; i < target.size(); i++) {
+            Integer position = positions.get(key.applyAsLong(target.get(i)));
+            targetPositions[i] = position == null ? -1 : position;
+        }
+        boolean[] keep = longestIncreasingRun(targetPositions);
+
+        int removeRuns = countRuns(keep, false);
+        boolean[] kept = new boolean[next.size()];
+        for (int i = 0; i < keep.length; i++) {
+            if (keep[i]) {
+                kept[targetPositions[i]] = true;
+            }
+        }
+        int insertRuns = countRuns(kept, false);
+        if (removeRuns + insertRuns > MAX_EDITS) {
+            target.setAll(next);
+            return;
+        }
+
+        // Remove from the end so earlier indices stay valid
+        for (int end = keep.length; end > 0; ) {
+            if (keep[end - 1]) {
+                end--;
+                continue;
+            }
+            int start = end - 1;
+            while (start > 0 && !keep[start - 1]) {
+                start--;
+            }
+            target.remove(start, end);
+            end = start;
+        }
+
+        // The remaining rows are now an ordered subsequence of the new list
+        int index = 0;
+        for (int j = 0; j < next.size(); ) {
+            if (kept[j]) {
+                if (target.get(index) != next.get(j)) {
+                    target.set(index, next.get(j));
+                }
+                index++;
+                j++;
+                continue;
+            }
+            int runEnd = j;
+            while (runEnd < next.size() && !kept[runEnd]) {
+                runEnd++;
+            }
+            target.addAll(index, new ArrayList<>(next.subList(j, runEnd)));
+            index += runEnd - j;
+            j = runEnd;
+        }
+    }
+
+    /**
+     * Mark the elements forming a longest strictly increasing subsequence of the
+     * non-negative positions (patience sorting, O(n log n)).
+     */
+    private static boolean[] longestIncreasingRun(int[] positions) {
+        int n = positions.length;
+        int[] tailPositions = new int[n];
+        int[] tailIndices = new int[n];
+        int[] previous = new int[n];
+        int length = 0;
+
+        for (int i = 0; i < n; i++) {
+            int position = positions[i];
+            if (position < 0) {
+                continue;
+            }
+            int slot = Arrays.binarySearch(tailPositions, 0, length, position);
+            if (slot < 0) {
+                slot = -slot - 1;
+            }
+            tailPositions[slot] = position;
+            tailIndices[slot] = i;
+            previous[i] = slot > 0 ? tailIndices[slot - 1] : -1;
+            if (slot == length) {
+                length++;
+            }
+        }
+
+        boolean[] keep = new boolean[n];
+        for (int i = length > 0 ? tailIndices[length - 1] : -1; i >= 0; i = previous[i]) {
+            keep[i] = true;
+        }
+        return keep;
+    }
+
+    private static int countRuns(boolean[] flags, boolean value) {
+        int runs = 0;
+        for (int i = 0; i < flags.length; i++) {
+            if (flags[i] == value && (i == 0 || flags[i - 1] != value)) {
+                runs++;
+            }
+        }
+        return runs;
+    }
+}
@@ -2,6 +2,8 @@ package com.iftakher.passwordmanager.controllers;
 
 import com.iftakher.passwordmanager.controllers.MainController;
 import com.iftakher.passwordmanager.services.DatabaseService;
+import com.iftakher.passwordmanager.services.UnlockService;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -9,22 +11,32 @@ import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.PasswordField;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.image.Image;
 import javafx.stage.Stage;
 
+import javax.crypto.SecretKey;
+
 public class LoginController {
     @FXML
     private PasswordField masterPasswordField;
     
     @FXML
     private Button loginButton;
+
+    @FXML
+    private ProgressIndicator unlockProgress;
     
     private Stage stage;
     private boolean authenticated = false;
+    private boolean unlocking = false;
     private DatabaseService databaseService;
+    // Started on the first keystroke; prepares the main window while the user types
+    private StartupWarmup warmup;
     
     public void setStage(Stage stage) {
         this.stage = stage;
+        stage.setOnHidden(event -> closeWarmup());
     }
     
     public void setDatabaseService(DatabaseService databaseService) {
@@ -38,36 +50,98 @@ public class LoginController {
     @FXML
     private void initialize() {
         loginButton.setOnAction(event -> handleLogin());
+        masterPasswordField.textProperty().addListener((observable, oldValue, newValue) -> startWarmup());
+    }
+
+    private void startWarmup() {
+        if (warmup == null && databaseService != null) {
+            warmup = StartupWarmup.start(databaseService);
+        }
+    }
+
+    /** Stop the warm-up; the next keystroke or login attempt starts a fresh one. */
+    private void closeWarmup() {
+        if (warmup != null) {
+            warmup.close();
+            warmup = null;
+        }
     }
     
     @FXML
     private void handleLogin() {
-        try {
-            String masterPassword = masterPasswordField.getText();
-            
-            // Check if password field is empty
-            if (masterPassword == null || masterPassword.trim().isEmpty()) {
-                showError("Please enter a password");
-                return;
+        String masterPassword = masterPasswordField.getText();
+
+        // Check if password field is empty
+        if (masterPassword == null || masterPassword.trim().isEmpty()) {
+            showError("Please enter a password");
+            return;
+        }
+        if (unlocking) {
+            return;
+        }
+        startWarmup();
+        StartupWarmup startup = warmup;
+        long unlockStarted = System.nanoTime();
+
+        // Key derivation (and a one-time vault migration) must not block the FX thread
+        Task<SecretKey> task = new Task<>() {
+            @Override
+            protected SecretKey call() throws Exception {
+                return new UnlockService(databaseService).unlock(masterPassword, this::updateProgress);
             }
-            
-            // Verify password with database
-            if (!databaseService.verifyMasterPassword(masterPassword)) {
+        };
+        task.setOnSucceeded(e -> {
+            setUnlocking(false);
+            startup.phase("unlock", unlockStarted);
+            SecretKey key = task.getValue();
+            if (key == null) {
+                closeWarmup();
                 showError("Invalid master password. First time? Use any password to set up.");
                 return;
             }
-            
-            // Load main view
+            openMainWindow(key, startup, System.nanoTime());
+        });
+        task.setOnFailed(e -> {
+            setUnlocking(false);
+            closeWarmup();
+            task.getException().printStackTrace();
+            showError("Failed to open password manager: " + task.getException().getMessage());
+        });
+
+        unlockProgress.progressProperty().bind(task.progressProperty());
+        setUnlocking(true);
+        Thread thread = new Thread(task, "vault-unlock");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void setUnlocking(boolean unlocking) {
+        this.unlocking = unlocking;
+        if (!unlocking) {
+            unlockProgress.progressProperty().unbind();
+        }
+        unlockProgress.setVisible(unlocking);
+        unlockProgress.setManaged(unlocking);
+        masterPasswordField.setDisable(unlocking);
+        loginButton.setDisable(unlocking);
+    }
+
+    private void openMainWindow(SecretKey encryptionKey, StartupWarmup startup, long unlockedAt) {
+        try {
+            // Load main screen; the scene graph is built here on the FX thread
             authenticated = true;
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/views/main.fxml"));
             Parent mainRoot = loader.load();
-            
-            // Get controller and set dependencies
             MainController mainController = loader.getController();
-            mainController.setDatabaseService(databaseService);
+            startup.phase("main view", unlockedAt);
+
+            // Set dependencies; rows prefetched during warm-up are shown at once
+            mainController.setOnFirstRows(() -> startup.phase("first rows after unlock", unlockedAt));
+            mainController.setDatabaseService(databaseService, startup.takeListing());
+            closeWarmup();
             
             // Set the encryption key derived from master password
-            mainController.setEncryptionKey(databaseService.deriveKeyFromPassword(masterPassword));
+            mainController.setEncryptionKey(encryptionKey);
             
             // Setup new stage for main window
             Stage mainStage = new Stage();
@@ -85,8 +159,11 @@ public class LoginController {
             // Show main window and close login window
             mainStage.show();
             stage.close();
+            startup.phase("main window shown", unlockedAt);
             
         } catch (Exception e) {
+            authenticated = false;
+            closeWarmup();
             e.printStackTrace();
             showError("Failed to open password manager: " + e.getMessage());
         }
@@ -2,33 +2,45 @@ package com.iftakher.passwordmanager.controllers;
 
 
 import com.iftakher.passwordmanager.models.PasswordEntry;
+import com.iftakher.passwordmanager.models.PasswordSummary;
 import com.iftakher.passwordmanager.services.*;
+import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.collections.transformation.SortedList;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.layout.VBox;
 import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 
 import javax.crypto.SecretKey;
 import java.io.File;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 public class MainController {
-    @FXML private TableView<PasswordEntry> passwordsTable;
-    @FXML private TableColumn<PasswordEntry, String> titleColumn;
-    @FXML private TableColumn<PasswordEntry, String> usernameColumn;
-    @FXML private TableColumn<PasswordEntry, byte[]> passwordColumn;
-    @FXML private TableColumn<PasswordEntry, String> websiteColumn;
-    @FXML private TableColumn<PasswordEntry, String> categoryColumn;
+    @FXML private TableView<PasswordSummary> passwordsTable;
+    @FXML private TableColumn<PasswordSummary, String> titleColumn;
+    @FXML private TableColumn<PasswordSummary, String> usernameColumn;
+    @FXML private TableColumn<PasswordSummary, PasswordSummary> passwordColumn;
+    @FXML private TableColumn<PasswordSummary, String> websiteColumn;
+    @FXML private TableColumn<PasswordSummary, String> categoryColumn;
     
     @FXML private TextField searchField;
     @FXML private Button addButton;
@@ -37,16 +49,44 @@ public class MainController {
     @FXML private Button exportButton;
     @FXML private Button importButton;
     @FXML private MenuItem logoutMenuItem;
+    @FXML private MenuItem auditMenuItem;
+    @FXML private ProgressBar operationProgress;
 
-    private ObservableList<PasswordEntry> passwords = FXCollections.observableArrayList();
+    // Kept in (title, id) order; the table shows it through a SortedList for column sorting
+    private ObservableList<PasswordSummary> passwords = FXCollections.observableArrayList();
+    private final SortedList<PasswordSummary> sortedPasswords = new SortedList<>(passwords);
     private DatabaseService databaseService;
     private SecretKey currentEncryptionKey;
     private String masterPasswordHash;
+    private VaultLoader vaultLoader;
+    private Task<PagedSummaryList> pagedLoader;
+    // Large vaults are not loaded into memory: the table pages through the database
+    private volatile boolean paged;
+    private PagedSummaryList pagedRows;
+    private final SummaryIndex summaryIndex = new SummaryIndex();
+    // Revealed passwords, so re-rendering a revealed row doesn't decrypt it again
+    private final RevealedSecretCache revealedSecrets =
+        new RevealedSecretCache(REVEALED_SECRET_LIMIT, REVEALED_SECRET_TTL_SECONDS, TimeUnit.SECONDS);
+    // Ids of the rows the user has revealed; cells are recycled, so they look it up here
+    private final Set<Long> revealedIds = new HashSet<>();
+    private final SearchPipeline searchPipeline = new SearchPipeline(this::search, passwords);
+    private final VaultChange.Listener changeListener = change -> Platform.runLater(() -> applyChange(change));
+    // Deleted while a load was running, so a page read before the delete can't bring them back
+    private final Set<Long> deletedWhileLoading = new HashSet<>();
+    private Runnable onFirstRows;
+
+    // Above this many rows a change is applied as one filtered diff instead of row by row
+    private static final int ROW_BY_ROW_LIMIT = 256;
+    // Vaults above this size are shown through a PagedSummaryList
+    private static final int PAGED_VAULT_THRESHOLD = 50_000;
+    private static final int TABLE_PAGE_SIZE = 200;
+    private static final int REVEALED_SECRET_LIMIT = 64;
+    private static final long REVEALED_SECRET_TTL_SECONDS = 30;
 
     public void initialize() {
         setupTableColumns();
         setupEventHandlers();
-        loadPasswords();
+        // Passwords are loaded once the database service is injected
     }
 
     private void setupTableColumns() {
@@ -55,19 +95,27 @@ public class MainController {
         websiteColumn.setCellValueFactory(new PropertyValueFactory<>("website"));
         categoryColumn.setCellValueFactory(new PropertyValueFactory<>("category"));
         
-        // Setup password column with custom cell factory
-        passwordColumn.setCellValueFactory(new PropertyValueFactory<>("encryptedPassword"));
-        passwordColumn.setCellFactory(col -> new PasswordTableCell(currentEncryptionKey));
+        // Setup password column with custom cell factory; the secret is only read on reveal
+        passwordColumn.setCellValueFactory(data -> new ReadOnlyObjectWrapper<>(data.getValue()));
+        passwordColumn.setCellFactory(col -> new PasswordTableCell(this::cachedPassword, this::revealPassword, revealedIds));
         
-        passwordsTable.setItems(passwords);
+        sortedPasswords.comparatorProperty().bind(passwordsTable.comparatorProperty());
+        passwordsTable.setItems(sortedPasswords);
+        passwordsTable.setSortPolicy(table -> {
+            // The paged view can only be read in title order
+            if (table.getItems() instanceof PagedSummaryList) {
+                return table.getSortOrder().isEmpty();
+            }
+            return TableView.DEFAULT_SORT_POLICY.call(table);
+        });
     }
 
     private void setupEventHandlers() {
         addButton.setOnAction(e -> showAddEditDialog(null));
         editButton.setOnAction(e -> {
-            PasswordEntry selected = passwordsTable.getSelectionModel().getSelectedItem();
+            PasswordSummary selected = passwordsTable.getSelectionModel().getSelectedItem();
             if (selected != null) {
-                showAddEditDialog(selected);
+                editPassword(selected);
             }
         });
         deleteButton.setOnAction(e -> deleteSelectedPassword());
@@ -76,33 +124,364 @@ public class MainController {
         logoutMenuItem.setOnAction(e -> logout());
         
         searchField.textProperty().addListener((observable, oldValue, newValue) -> {
-            filterPasswords(newValue);
+            if (paged) {
+                showPagedOrFiltered(newValue);
+            }
+            if (!paged || !isBlank(newValue)) {
+                searchPipeline.submit(newValue);
+            }
         });
     }
 
     private void loadPasswords() {
+        loadPasswords(null);
+    }
+
+    /**
+     * Reload the table from the database. A listing read ahead during login is shown
+     * right away, and only the rest of the vault is loaded.
+     */
+    private void loadPasswords(StartupWarmup.Listing prefetched) {
         try {
             if (databaseService == null) {
                 databaseService = new DatabaseService();
             }
-            List<PasswordEntry> passwordList = databaseService.getAllPasswords();
-            passwords.setAll(passwordList);
+            cancelVaultLoad();
+            searchPipeline.cancel();
+            passwords.clear();
+            summaryIndex.clear();
+            deletedWhileLoading.clear();
+            paged = false;
+            pagedRows = null;
+            passwordsTable.setItems(sortedPasswords);
+
+            if (prefetched != null && prefetched.getSize() <= PAGED_VAULT_THRESHOLD) {
+                List<PasswordSummary> firstPage = prefetched.getFirstPage();
+                onPageLoaded(firstPage);
+                if (firstPage.size() == VaultLoader.FIRST_PAGE_SIZE) {
+                    startVaultLoader(firstPage.get(firstPage.size() - 1));
+                }
+                return;
+            }
+            // Size the vault first: small ones are indexed in memory, large ones are paged
+            loadPagedRows(true, null);
         } catch (Exception e) {
             showError("Error loading passwords", e.getMessage());
         }
     }
 
+    /**
+     * Snapshot the paged view off the FX thread. On the initial load this returns no
+     * list for a vault small enough to index, which then streams into memory instead.
+     * After a change the new snapshot is shown scrolled to the changed row, if any.
+     */
+    private void loadPagedRows(boolean initial, PasswordSummary focus) {
+        if (pagedLoader != null) {
+            pagedLoader.cancel();
+        }
+        DatabaseService db = databaseService;
+        Task<PagedSummaryList> task = new Task<>() {
+            @Override
+            protected PagedSummaryList call() throws Exception {
+                if (initial && db.countPasswords() <= PAGED_VAULT_THRESHOLD) {
+                    return null;
+                }
+                return PagedSummaryList.load(db, TABLE_PAGE_SIZE);
+            }
+        };
+        task.setOnSucceeded(e -> {
+            if (pagedLoader != task) {
+                return;
+            }
+            pagedLoader = null;
+            if (task.getValue() == null) {
+                startVaultLoader();
+                return;
+            }
+            paged = true;
+            pagedRows = task.getValue();
+            showPagedOrFiltered(searchField.getText());
+            firstRowsShown();
+            if (focus != null && passwordsTable.getItems() == pagedRows) {
+                int index = pagedRows.indexOf(focus);
+                if (index >= 0) {
+                    passwordsTable.getSelectionModel().select(index);
+                    passwordsTable.scrollTo(index);
+                }
+            }
+        });
+        task.setOnFailed(e -> {
+            if (pagedLoader == task) {
+                pagedLoader = null;
+                showError("Error loading passwords", task.getException().getMessage());
+            }
+        });
+        pagedLoader = task;
+
+        Thread thread = new Thread(task, "vault-pager");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void startVaultLoader() {
+        startVaultLoader(null);
+    }
+
+    private void startVaultLoader(PasswordSummary after) {
+        // Stream the vault in pages off the FX thread; each page is indexed as it arrives
+        VaultLoader loader = new VaultLoader(databaseService, this::onPageLoaded, after);
+        // An empty vault never delivers a page
+        loader.setOnSucceeded(e -> firstRowsShown());
+        loader.setOnFailed(e -> showError("Error loading passwords", loader.getException().getMessage()));
+        vaultLoader = loader.start();
+    }
+
+    private void firstRowsShown() {
+        Runnable listener = onFirstRows;
+        onFirstRows = null;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    /**
+     * In paged mode a blank query shows the paged vault; anything else shows the
+     * search results collected in the in-memory list.
+     */
+    private void showPagedOrFiltered(String query) {
+        if (isBlank(query)) {
+            searchPipeline.cancel();
+            passwords.clear();
+            passwordsTable.setItems(pagedRows);
+        } else {
+            passwordsTable.setItems(sortedPasswords);
+        }
+    }
+
+    /**
+     * Blank queries list the loaded vault in title order; anything else is a ranked
+     * full-text search in the database, which already holds rows still being loaded.
+     */
+    private List<PasswordSummary> search(String query) {
+        if (isBlank(query) && !paged) {
+            return summaryIndex.list();
+        }
+        try {
+            return databaseService.searchPasswords(query == null ? "" : query.trim());
+        } catch (SQLException e) {
+            throw new IllegalStateException("Search failed: " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private int vaultSize() {
+        return paged ? pagedRows.size() : summaryIndex.size();
+    }
+
+    private void onPageLoaded(List<PasswordSummary> page) {
+        // Rows touched by a change event during the load are already current
+        List<PasswordSummary> fresh = new ArrayList<>(page.size());
+        for (PasswordSummary entry : page) {
+            if (summaryIndex.get(entry.getId()) == null && !deletedWhileLoading.contains(entry.getId())) {
+                fresh.add(entry);
+            }
+        }
+        summaryIndex.addAll(fresh);
+
+        // Search results come from the database and are already complete
+        String query = searchField.getText();
+        if (!isBlank(query)) {
+            firstRowsShown();
+            return;
+        }
+        // Pages arrive in table order, so rows are almost always appended
+        for (PasswordSummary entry : fresh) {
+            SortedRows.insert(passwords, entry, SummaryIndex.ORDER);
+        }
+        firstRowsShown();
+
+        // A listing started before this page was indexed would drop its rows again
+        if (searchPipeline.isRunning()) {
+            searchPipeline.run(query);
+        }
+    }
+
+    /**
+     * Patch the index and the visible rows with a committed change. Each row is
+     * located by binary search in the (title, id) order the table is kept in.
+     */
+    private void applyChange(VaultChange change) {
+        if (currentEncryptionKey == null) {
+            return;
+        }
+        if (change.getType() != VaultChange.Type.INSERTED) {
+            // Edited rows would miss by updatedAt anyway; wipe their old plaintext now
+            for (PasswordEntry entry : change.getEntries()) {
+                revealedSecrets.invalidate(entry.getId());
+                if (change.getType() == VaultChange.Type.DELETED) {
+                    revealedIds.remove(entry.getId());
+                }
+            }
+        }
+        if (paged) {
+            applyPagedChange(change);
+            if (!isBlank(searchField.getText())) {
+                refreshFilter();
+            }
+            return;
+        }
+        boolean loading = vaultLoader != null && !vaultLoader.isDone();
+
+        if (change.size() > ROW_BY_ROW_LIMIT) {
+            if (change.getType() == VaultChange.Type.DELETED) {
+                for (PasswordEntry entry : change.getEntries()) {
+                    summaryIndex.remove(entry.getId());
+                    if (loading) {
+                        deletedWhileLoading.add(entry.getId());
+                    }
+                }
+            } else {
+                List<PasswordSummary> summaries = new ArrayList<>(change.size());
+                for (PasswordEntry entry : change.getEntries()) {
+                    summaries.add(PasswordSummary.of(entry));
+                }
+                summaryIndex.addAll(summaries);
+            }
+            if (summaryIndex.size() > PAGED_VAULT_THRESHOLD) {
+                // Grown too large to keep in memory, e.g. after a big import
+                loadPasswords();
+                return;
+            }
+            refreshFilter();
+            return;
+        }
+
+        // Search results are in rank order, so they are re-queried rather than patched
+        boolean searching = !isBlank(searchField.getText());
+        PasswordSummary selected = passwordsTable.getSelectionModel().getSelectedItem();
+        for (PasswordEntry changed : change.getEntries()) {
+            PasswordSummary entry = PasswordSummary.of(changed);
+            // The indexed summary is the row object currently shown, with its old sort key
+            PasswordSummary previous = summaryIndex.get(entry.getId());
+            if (previous != null && !searching) {
+                SortedRows.remove(passwords, previous, SummaryIndex.ORDER);
+            }
+
+            if (change.getType() == VaultChange.Type.DELETED) {
+                summaryIndex.remove(entry.getId());
+                if (loading) {
+                    deletedWhileLoading.add(entry.getId());
+                }
+                continue;
+            }
+
+            summaryIndex.update(entry);
+            if (!searching) {
+                SortedRows.insert(passwords, entry, SummaryIndex.ORDER);
+                if (previous != null && previous == selected) {
+                    passwordsTable.getSelectionModel().select(entry);
+                }
+            }
+        }
+
+        // A query that started before this change would otherwise undo it
+        if (searching || searchPipeline.isRunning()) {
+            refreshFilter();
+        }
+    }
+
+    /**
+     * Patch the paged view in place: only the page the change falls in is re-read. A new
+     * snapshot (a scan of the title index) is only taken for large changes, for an edit
+     * whose old position is unknown, or while a snapshot is still loading. A single added
+     * or edited row is kept in view either way.
+     */
+    private void applyPagedChange(VaultChange change) {
+        PasswordSummary focus = change.size() == 1 && change.getType() != VaultChange.Type.DELETED
+            ? PasswordSummary.of(change.getEntries().get(0))
+            : null;
+        if (pagedLoader == null && change.size() <= ROW_BY_ROW_LIMIT) {
+            try {
+                int index = pagedRows.apply(change);
+                if (index != -2) {
+                    if (focus != null && index >= 0 && passwordsTable.getItems() == pagedRows) {
+                        passwordsTable.getSelectionModel().select(index);
+                        passwordsTable.scrollTo(index);
+                    }
+                    return;
+                }
+            } catch (SQLException e) {
+                System.err.println("Error updating the paged view: " + e.getMessage());
+            }
+        }
+        loadPagedRows(false, focus);
+    }
+
+    private void cancelVaultLoad() {
+        if (vaultLoader != null) {
+            vaultLoader.cancel();
+            vaultLoader = null;
+        }
+        if (pagedLoader != null) {
+            pagedLoader.cancel();
+            pagedLoader = null;
+        }
+    }
+
     private void filterPasswords(String query) {
-        if (query == null || query.trim().isEmpty()) {
-            loadPasswords();
+        // Runs off the FX thread: a bm25-ranked full-text query for search terms, the
+        // loaded summaries for the plain listing
+        searchPipeline.run(query);
+    }
+
+    private void refreshFilter() {
+        String query = searchField.getText();
+        if (paged && isBlank(query)) {
             return;
         }
+        filterPasswords(query);
+    }
+
+    /**
+     * A row's password if it was decrypted recently, without touching the database.
+     */
+    private String cachedPassword(PasswordSummary summary) {
+        return revealedSecrets.getIfPresent(summary.getId(), summary.getUpdatedAt());
+    }
+
+    /**
+     * Decrypt a row's password for the reveal button, reading its ciphertext on demand.
+     * Runs on the cell's background thread.
+     */
+    private String revealPassword(PasswordSummary summary) throws Exception {
+        DatabaseService db = databaseService;
+        SecretKey key = currentEncryptionKey;
+        if (key == null) {
+            throw new IllegalStateException("Vault is locked");
+        }
+        return revealedSecrets.get(summary.getId(), summary.getUpdatedAt(), () -> {
+            EncryptionService.EncryptedData encrypted = db.getEncryptedPassword(summary.getId());
+            if (encrypted == null) {
+                throw new IllegalStateException("Entry no longer exists");
+            }
+            return EncryptionService.decryptToChars(encrypted, key);
+        });
+    }
 
+    private void editPassword(PasswordSummary summary) {
         try {
-            List<PasswordEntry> filtered = databaseService.searchPasswords(query.trim());
-            passwords.setAll(filtered);
+            // The list holds summaries only; the dialog needs the secret and notes
+            PasswordEntry entry = databaseService.getPassword(summary.getId());
+            if (entry == null) {
+                showAlert(Alert.AlertType.WARNING, "Not Found", "This password was deleted.");
+                return;
+            }
+            showAddEditDialog(entry);
         } catch (Exception e) {
-            showError("Error searching passwords", e.getMessage());
+            showError("Error opening dialog", e.getMessage());
         }
     }
 
@@ -114,8 +493,8 @@ public class MainController {
             PasswordDialogController controller = loader.getController();
             controller.setPasswordEntry(password);
             controller.setEncryptionKey(currentEncryptionKey);
+            // The table picks the saved entry up from the database change event
             controller.setDatabaseService(databaseService);
-            controller.setOnSaveCallback(this::loadPasswords);
             
             Stage stage = new Stage();
             controller.setDialogStage(stage);
@@ -130,7 +509,7 @@ public class MainController {
     }
 
     private void deleteSelectedPassword() {
-        PasswordEntry selected = passwordsTable.getSelectionModel().getSelectedItem();
+        PasswordSummary selected = passwordsTable.getSelectionModel().getSelectedItem();
         if (selected == null) {
             showAlert(Alert.AlertType.WARNING, "No Selection", "Please select a password to delete.");
             return;
@@ -145,7 +524,6 @@ public class MainController {
         if (result.isPresent() && result.get() == ButtonType.OK) {
             try {
                 databaseService.deletePassword(selected.getId());
-                loadPasswords();
             } catch (Exception e) {
                 showError("Error deleting password", e.getMessage());
             }
@@ -153,7 +531,7 @@ public class MainController {
     }
 
     private void exportPasswords() {
-        if (passwords.isEmpty()) {
+        if (vaultSize() == 0) {
             showAlert(Alert.AlertType.INFORMATION, "No Data", "There are no passwords to export.");
             return;
         }
@@ -167,15 +545,27 @@ public class MainController {
         
         File file = fileChooser.showSaveDialog(passwordsTable.getScene().getWindow());
         if (file != null) {
-            try {
-                String deviceName = System.getProperty("os.name") + " - Desktop";
-                ImportExportService.exportToFile(passwords, file.getAbsolutePath(), 
-                                               currentEncryptionKey, deviceName);
+            String deviceName = System.getProperty("os.name") + " - Desktop";
+            SecretKey key = currentEncryptionKey;
+
+            // Stream the whole vault from the database straight into the encrypted file
+            Task<Void> task = new Task<>() {
+                @Override
+                protected Void call() throws Exception {
+                    ImportExportService.exportToFile(databaseService, file.getAbsolutePath(), key, deviceName);
+                    return null;
+                }
+            };
+            task.setOnSucceeded(e -> {
+                hideProgress(exportButton);
                 showAlert(Alert.AlertType.INFORMATION, "Export Successful", 
                          "Passwords exported successfully to: " + file.getAbsolutePath());
-            } catch (Exception e) {
-                showError("Export Failed", e.getMessage());
-            }
+            });
+            task.setOnFailed(e -> {
+                hideProgress(exportButton);
+                showError("Export Failed", task.getException().getMessage());
+            });
+            runWithProgress(task, exportButton, "export-passwords");
         }
     }
 
@@ -194,29 +584,83 @@ public class MainController {
                 return;
             }
 
+            SecretKey key = currentEncryptionKey;
+            UnlockService unlockService = new UnlockService(databaseService);
+            String legacyPassword;
             try {
-                List<PasswordEntry> importedPasswords = ImportExportService.importFromFile(
-                    file.getAbsolutePath(), currentEncryptionKey);
-                
-                // Add imported passwords to database
-                for (PasswordEntry password : importedPasswords) {
-                    databaseService.addPassword(password);
+                legacyPassword = ImportExportService.needsLegacyKey(file.getAbsolutePath(), key)
+                        && unlockService.hasLegacyExportKey()
+                    ? askLegacyPassword()
+                    : null;
+            } catch (Exception e) {
+                showError("Import Failed", "Failed to read the export: " + e.getMessage());
+                return;
+            }
+            if ("".equals(legacyPassword)) {
+                return;
+            }
+            Task<Integer> task = new Task<>() {
+                @Override
+                protected Integer call() throws Exception {
+                    SecretKey legacyKey = legacyPassword == null ? null : unlockService.legacyExportKey(legacyPassword);
+                    // Stream entries out of the file straight into one batched transaction;
+                    // the table is updated from the change event once it commits
+                    try (ImportExportService.ImportReader reader =
+                             ImportExportService.openImport(file.getAbsolutePath(), key, legacyKey)) {
+                        return databaseService.addPasswords(reader, DatabaseService.DEFAULT_BULK_CHUNK_SIZE, -1,
+                            (done, total) -> updateProgress(reader.getBytesRead(), reader.getFileSize()));
+                    }
                 }
-                
-                loadPasswords();
+            };
+            task.setOnSucceeded(e -> {
+                hideProgress(importButton);
                 showAlert(Alert.AlertType.INFORMATION, "Import Successful", 
-                         "Successfully imported " + importedPasswords.size() + " passwords.");
-            } catch (Exception e) {
+                         "Successfully imported " + task.getValue() + " passwords.");
+            });
+            task.setOnFailed(e -> {
+                hideProgress(importButton);
                 showError("Import Failed", 
-                         "Failed to import passwords. Please check your master password and try again.");
-            }
+                         "Failed to import passwords: " + task.getException().getMessage()
+                             + "\nPlease check your master password and try again.");
+            });
+            runWithProgress(task, importButton, "import-passwords");
         }
     }
 
+    /**
+     * Ask for the master password an export made before the vault was migrated was
+     * written with. Returns an empty string if the user cancels.
+     */
+    private String askLegacyPassword() {
+        PasswordField passwordField = new PasswordField();
+        passwordField.setPromptText("Master password");
+        Alert alert = new Alert(Alert.AlertType.CONFIRMATION);
+        alert.setTitle("Import Passwords");
+        alert.setHeaderText("This export was made before the vault was upgraded");
+        alert.getDialogPane().setContent(new VBox(8,
+            new Label("Enter the master password the vault had when the export was made."), passwordField));
+        Platform.runLater(passwordField::requestFocus);
+
+        Optional<ButtonType> result = alert.showAndWait();
+        if (result.isEmpty() || result.get() != ButtonType.OK) {
+            return "";
+        }
+        return passwordField.getText();
+    }
+
     private void logout() {
+        databaseService.removeChangeListener(changeListener);
+        cancelVaultLoad();
+        searchPipeline.shutdown();
+        revealedSecrets.close();
+        revealedIds.clear();
         currentEncryptionKey = null;
         masterPasswordHash = null;
+        EncryptionService.forgetKeys();
         passwords.clear();
+        summaryIndex.clear();
+        pagedRows = null;
+        paged = false;
         
         // Return to login screen
         try {
@@ -231,6 +675,32 @@ public class MainController {
         }
     }
 
+    private void runWithProgress(Task<?> task, Button trigger, String threadName) {
+        trigger.setDisable(true);
+        runWithProgress(task, threadName);
+    }
+
+    private void runWithProgress(Task<?> task, String threadName) {
+        operationProgress.progressProperty().bind(task.progressProperty());
+        operationProgress.setVisible(true);
+        operationProgress.setManaged(true);
+
+        Thread thread = new Thread(task, threadName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void hideProgress(Button trigger) {
+        hideProgress();
+        trigger.setDisable(false);
+    }
+
+    private void hideProgress() {
+        operationProgress.progressProperty().unbind();
+        operationProgress.setVisible(false);
+        operationProgress.setManaged(false);
+    }
+
     public void setEncryptionKey(SecretKey key) {
         this.currentEncryptionKey = key;
     }
@@ -240,7 +710,24 @@ public class MainController {
     }
 
     public void setDatabaseService(DatabaseService databaseService) {
+        setDatabaseService(databaseService, null);
+    }
+
+    /**
+     * Attach the vault and start showing it, beginning with a listing prefetched during
+     * login if there is one.
+     */
+    public void setDatabaseService(DatabaseService databaseService, StartupWarmup.Listing prefetched) {
         this.databaseService = databaseService;
+        databaseService.addChangeListener(changeListener);
+        loadPasswords(prefetched);
+    }
+
+    /**
+     * Run once the first rows of the vault are in the table (or the vault turned out empty).
+     */
+    public void setOnFirstRows(Runnable onFirstRows) {
+        this.onFirstRows = onFirstRows;
     }
 
     private void showAlert(Alert.AlertType type, String title, String message) {
@@ -264,8 +751,111 @@ public class MainController {
 
     @FXML
     private void showPasswordGenerator() {
-        // Placeholder: show info that feature is not yet implemented
-        showAlert(Alert.AlertType.INFORMATION, "Password Generator", "Password generator is not implemented yet.");
+        try {
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("/views/password-generator.fxml"));
+            Parent root = loader.load();
+
+            PasswordGeneratorController controller = loader.getController();
+            Stage stage = new Stage();
+            controller.setDialogStage(stage);
+            stage.setTitle("Password Generator");
+            // Not modal, so it can stay open next to the vault while passwords are copied
+            stage.initOwner(passwordsTable.getScene().getWindow());
+            stage.setScene(new Scene(root));
+            stage.show();
+        } catch (Exception e) {
+            showError("Error", "Failed to open password generator: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Score every password in the background and list the weak and the reused ones.
+     */
+    @FXML
+    private void auditPasswords() {
+        if (vaultSize() == 0) {
+            showAlert(Alert.AlertType.INFORMATION, "No Data", "There are no passwords to audit.");
+            return;
+        }
+
+        SecretKey key = currentEncryptionKey;
+        Task<AuditReport> task = new Task<>() {
+            @Override
+            protected AuditReport call() throws Exception {
+                return new AuditReport(VaultAudit.audit(databaseService, key, this::updateProgress),
+                    PasswordReuse.find(databaseService, key));
+            }
+        };
+        task.setOnSucceeded(e -> {
+            hideProgress();
+            auditMenuItem.setDisable(false);
+            showAuditResult(task.getValue());
+        });
+        task.setOnFailed(e -> {
+            hideProgress();
+            auditMenuItem.setDisable(false);
+            showError("Audit Failed", task.getException().getMessage());
+        });
+        auditMenuItem.setDisable(true);
+        runWithProgress(task, "audit-passwords");
+    }
+
+    /** Strength of every entry, and the groups of entries sharing a password. */
+    private static final class AuditReport {
+        final List<VaultAudit.Finding> findings;
+        final List<List<PasswordSummary>> reused;
+
+        AuditReport(List<VaultAudit.Finding> findings, List<List<PasswordSummary>> reused) {
+            this.findings = findings;
+            this.reused = reused;
+        }
+    }
+
+    private void showAuditResult(AuditReport report) {
+        List<VaultAudit.Finding> findings = report.findings;
+        List<List<PasswordSummary>> reused = report.reused;
+        Map<String, Integer> byLabel = new LinkedHashMap<>();
+        StringBuilder flagged = new StringBuilder();
+        for (VaultAudit.Finding finding : findings) {
+            PasswordStrength strength = finding.getStrength();
+            byLabel.merge(strength.getLabel(), 1, Integer::sum);
+            if (strength.isWeak()) {
+                flagged.append(finding.getTitle()).append(" (").append(finding.getUsername()).append("): ")
+                    .append(strength.getLabel());
+                if (!strength.getReasons().isEmpty()) {
+                    flagged.append(" - ").append(String.join(", ", strength.getReasons()));
+                }
+                flagged.append('\n');
+            }
+        }
+
+        int reusedEntries = 0;
+        for (List<PasswordSummary> group : reused) {
+            reusedEntries += group.size();
+            flagged.append("Same password: ");
+            for (int i = 0; i < group.size(); i++) {
+                flagged.append(i == 0 ? "" : ", ").append(group.get(i).getTitle());
+            }
+            flagged.append('\n');
+        }
+
+        StringBuilder summary = new StringBuilder("Audited " + findings.size() + " passwords.\n");
+        byLabel.forEach((label, count) -> summary.append('\n').append(label).append(": ").append(count));
+        summary.append("\n\nShared by more than one entry: ").append(reused.size())
+            .append(" (used by ").append(reusedEntries).append(" entries)");
+
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle("Password Audit");
+        alert.setHeaderText(flagged.length() == 0 ? "No weak or reused passwords found" : "Weak passwords first, then reused ones");
+        alert.setContentText(summary.toString());
+        if (flagged.length() > 0) {
+            TextArea details = new TextArea(flagged.toString());
+            details.setEditable(false);
+            details.setWrapText(true);
+            alert.getDialogPane().setExpandableContent(details);
+            alert.getDialogPane().setExpanded(true);
+        }
+        alert.showAndWait();
     }
 
     @FXML
@@ -285,10 +875,9 @@ public class MainController {
             stage.showAndWait();
 
             if (controller.isOkClicked()) {
-                // update current encryption key to new password
-                String newPass = controller.getNewPassword();
-                this.currentEncryptionKey = databaseService.deriveKeyFromPassword(newPass);
-                loadPasswords();
+                // update current encryption key to the one derived during the change;
+                // the re-encrypted rows arrive through the change event
+                this.currentEncryptionKey = controller.getNewKey();
                 showAlert(Alert.AlertType.INFORMATION, "Success", "Master password changed successfully.");
             }
         } catch (Exception e) {
@@ -0,0 +1,323 @@
+package com.iftakher.passwordmanager.controllers;
+
+import com.iftakher.passwordmanager.models.PasswordEntry;
+import com.iftakher.passwordmanager.models.PasswordSummary;
+import com.iftakher.passwordmanager.services.DatabaseService;
+import com.iftakher.passwordmanager.services.VaultChange;
+import javafx.collections.ObservableListBase;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * List over the whole vault in (title, id) order that only holds the pages the table
+ * is actually showing.
+ *
+ * On creation the list learns the row count and the key at the end of every page
+ * from one scan of the title index. After that, any page is read with a keyset seek
+ * when a row on it is first asked for, and only the most recently used pages are kept.
+ * A virtualized table asks only for visible rows, so a vault of any size costs a few
+ * pages of summaries.
+ *
+ * Each page is the rows after the previous page's last key, so a committed change
+ * only moves the row count of the page it falls in: {@link #apply} adjusts that count,
+ * re-reads that one page and fires the matching list change. A page that grows to
+ * twice the page size is split and one that empties is dropped. Must be used on the
+ * FX thread.
+ */
+public class PagedSummaryList extends ObservableListBase<PasswordSummary> {
+    private static final int MAX_CACHED_PAGES = 16;
+
+    private static final Comparator<DatabaseService.SortKey> KEY_ORDER =
+        Comparator.comparing(DatabaseService.SortKey::getTitle).thenComparingLong(DatabaseService.SortKey::getId);
+
+    /** A run of rows: the count rows after the key (the first page starts at null). */
+    private static class Page {
+        DatabaseService.SortKey after;
+        int count;
+        List<PasswordSummary> rows;
+
+        Page(DatabaseService.SortKey after, int count) {
+            this.after = after;
+            this.count = count;
+        }
+    }
+
+    private final DatabaseService databaseService;
+    private final int pageSize;
+    private final List<Page> pages;
+    // Index of the first row of each page
+    private int[] starts;
+    private int size;
+    private final Map<Page, Boolean> cached =
+        new LinkedHashMap<>(MAX_CACHED_PAGES, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Page, Boolean> eldest) {
+                if (size() > MAX_CACHED_PAGES) {
+                    eldest.getKey().rows = null;
+                    return true;
+                }
+                return false;
+            }
+        };
+
+    private PagedSummaryList(DatabaseService databaseService, int pageSize, int size,
+                             List<DatabaseService.SortKey> boundaries) {
+        this.databaseService = databaseService;
+        this.pageSize = pageSize;
+        this.pages = new ArrayList<>(boundaries.size() + 1);
+        for (int i = 0, remaining = size; i <= boundaries.size(); i++, remaining -= pageSize) {
+            pages.add(new Page(i == 0 ? null : boundaries.get(i - 1), Math.max(0, Math.min(pageSize, remaining))));
+        }
+        recount();
+    }
+
+    /**
+     * Snapshot the vault's size and page boundaries. Reads the database, so call it
+     * off the FX thread for large vaults.
+     */
+    public static PagedSummaryList load(DatabaseService databaseService, int pageSize) throws SQLException {
+        List<DatabaseService.SortKey> boundaries = databaseService.getPageBoundaries(pageSize);
+        // Count after the boundaries so a concurrent insert can't leave a page without one
+        int size = Math.min(databaseService.countPasswords(), (boundaries.size() + 1) * pageSize);
+        return new PagedSummaryList(databaseService, pageSize, size, boundaries);
+    }
+
+    @Override
+    public PasswordSummary get(int index) {
+        Objects.checkIndex(index, size);
+        int number = pageOf(index);
+        List<PasswordSummary> page = page(number);
+        int offset = index - starts[number];
+        // Rows deleted since the snapshot leave the tail of a page empty
+        return offset < page.size() ? page.get(offset) : null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Locate a row by its sort key instead of scanning, which would load every page.
+     */
+    @Override
+    public int indexOf(Object o) {
+        if (!(o instanceof PasswordSummary)) {
+            return -1;
+        }
+        PasswordSummary summary = (PasswordSummary) o;
+        try {
+            int index = databaseService.countBefore(DatabaseService.SortKey.of(summary));
+            return index < size && summary.equals(get(index)) ? index : -1;
+        } catch (SQLException e) {
+            System.err.println("Error locating row: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * Patch the list with a committed change, firing one list change for it. Returns the
+     * index of the last inserted or updated row, or -1 if there is none (a delete). Returns
+     * -2 if an updated row's old position is unknown because no cached page read before
+     * the update holds it; the list is then stale and a new snapshot has to be loaded.
+     */
+    public int apply(VaultChange change) throws SQLException {
+        int focus = -1;
+        beginChange();
+        try {
+            for (PasswordEntry entry : change.getEntries()) {
+                PasswordSummary summary = PasswordSummary.of(entry);
+                switch (change.getType()) {
+                    case INSERTED -> focus = insert(summary);
+                    case DELETED -> {
+                        remove(summary);
+                        focus = -1;
+                    }
+                    case UPDATED -> {
+                        PasswordSummary previous = findPrevious(summary);
+                        if (previous == null) {
+                            return -2;
+                        }
+                        remove(previous);
+                        focus = insert(summary);
+                    }
+                }
+            }
+            return focus;
+        } finally {
+            endChange();
+        }
+    }
+
+    private int insert(PasswordSummary summary) throws SQLException {
+        DatabaseService.SortKey key = DatabaseService.SortKey.of(summary);
+        int number = pageFor(key);
+        Page page = pages.get(number);
+        page.count++;
+        shiftStarts(number, 1);
+        size++;
+        // The row is committed, so a fresh read of the page now includes it
+        List<PasswordSummary> rows = reload(page);
+        int offset = Collections.binarySearch(rows, summary,
+            Comparator.comparing(DatabaseService.SortKey::of, KEY_ORDER));
+        offset = offset >= 0 ? offset : -offset - 1;
+        int index = starts[number] + offset;
+        nextAdd(index, index + 1);
+        if (page.count >= 2 * pageSize && rows.size() == page.count) {
+            split(number, rows);
+        }
+        return index;
+    }
+
+    private void remove(PasswordSummary summary) throws SQLException {
+        DatabaseService.SortKey key = DatabaseService.SortKey.of(summary);
+        int number = pageFor(key);
+        Page page = pages.get(number);
+        // The rows before the deleted one are the same in the old page and a fresh read
+        List<PasswordSummary> rows = page.rows != null ? page.rows : reload(page);
+        int offset = 0;
+        while (offset < rows.size() && KEY_ORDER.compare(DatabaseService.SortKey.of(rows.get(offset)), key) < 0) {
+            offset++;
+        }
+        int index = starts[number] + offset;
+        page.count--;
+        shiftStarts(number, -1);
+        size--;
+        uncache(page);
+        if (page.count == 0 && pages.size() > 1) {
+            // Nothing is left between this page's key and the next one's
+            if (number + 1 < pages.size()) {
+                pages.get(number + 1).after = page.after;
+            }
+            pages.remove(number);
+            recount();
+        }
+        nextRemove(index, summary);
+    }
+
+    /**
+     * Split an oversized page in two at the page size, keeping both halves cached.
+     */
+    private void split(int number, List<PasswordSummary> rows) {
+        Page page = pages.get(number);
+        Page tail = new Page(DatabaseService.SortKey.of(rows.get(pageSize - 1)), page.count - pageSize);
+        page.count = pageSize;
+        uncache(page);
+        pages.add(number + 1, tail);
+        recount();
+        cache(page, new ArrayList<>(rows.subList(0, pageSize)));
+        cache(tail, new ArrayList<>(rows.subList(pageSize, rows.size())));
+    }
+
+    /**
+     * The row as it was before the update, if a page read before the update holds it.
+     * Pages read since then already show the new state, which says nothing about where
+     * the row used to be.
+     */
+    private PasswordSummary findPrevious(PasswordSummary current) {
+        for (Page page : cached.keySet()) {
+            for (PasswordSummary row : page.rows) {
+                if (row.getId() == current.getId() && row.getUpdatedAt() < current.getUpdatedAt()) {
+                    return row;
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Last page whose starting key sorts before the key. */
+    private int pageFor(DatabaseService.SortKey key) {
+        int low = 1;
+        int high = pages.size() - 1;
+        int found = 0;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (KEY_ORDER.compare(pages.get(mid).after, key) < 0) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    /** Page holding the row at the index. */
+    private int pageOf(int index) {
+        int low = 0;
+        int high = pages.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (starts[mid] <= index) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private void recount() {
+        starts = new int[pages.size()];
+        int total = 0;
+        for (int i = 0; i < pages.size(); i++) {
+            starts[i] = total;
+            total += pages.get(i).count;
+        }
+        size = total;
+    }
+
+    private void shiftStarts(int number, int delta) {
+        for (int i = number + 1; i < starts.length; i++) {
+            starts[i] += delta;
+        }
+    }
+
+    private List<PasswordSummary> page(int number) {
+        Page page = pages.get(number);
+        if (page.rows != null) {
+            cached.get(page);
+            return page.rows;
+        }
+        try {
+            return reload(page);
+        } catch (SQLException e) {
+            System.err.println("Error loading page " + number + ": " + e.getMessage());
+            // Not cached, so the next access retries
+            return Collections.emptyList();
+        }
+    }
+
+    private List<PasswordSummary> reload(Page page) throws SQLException {
+        List<PasswordSummary> rows = databaseService.getSummariesPage(page.after, page.count);
+        cache(page, rows);
+        return rows;
+    }
+
+    private void cache(Page page, List<PasswordSummary> rows) {
+        page.rows = rows;
+        cached.put(page, Boolean.TRUE);
+    }
+
+    private void uncache(Page page) {
+        page.rows = null;
+        cached.remove(page);
+    }
+}
@@ -8,9 +8,7 @@ import javafx.scene.control.TextField;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.ComboBox;
 import javafx.stage.Stage;
-import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
-import javax.crypto.spec.IvParameterSpec;
 
 public class PasswordDialogController {
     @FXML
@@ -36,7 +34,6 @@ public class PasswordDialogController {
     private boolean okClicked = false;
     private SecretKey encryptionKey;
     private DatabaseService databaseService;
-    private Runnable onSaveCallback;
     
     public void setDialogStage(Stage dialogStage) {
         this.dialogStage = dialogStage;
@@ -68,18 +65,18 @@ public class PasswordDialogController {
             return;
         }
         
-        this.passwordEntry = passwordEntry;
+        // Edit a copy so the row shown in the table only changes once the save commits
+        this.passwordEntry = new PasswordEntry(passwordEntry);
         titleField.setText(passwordEntry.getTitle());
         websiteField.setText(passwordEntry.getWebsite());
         usernameField.setText(passwordEntry.getUsername());
         
         if (encryptionKey != null && passwordEntry.getEncryptedPassword() != null) {
             try {
-                IvParameterSpec ivSpec = new IvParameterSpec(passwordEntry.getEncryptionIv());
-                Cipher cipher = Cipher.getInstance(EncryptionService.ALGORITHM);
-                cipher.init(Cipher.DECRYPT_MODE, encryptionKey, ivSpec);
-                byte[] decrypted = cipher.doFinal(passwordEntry.getEncryptedPassword());
-                String decryptedPassword = new String(decrypted, java.nio.charset.StandardCharsets.UTF_8);
+                String decryptedPassword = EncryptionService.decryptData(
+                    new EncryptionService.EncryptedData(
+                        passwordEntry.getEncryptedPassword(), passwordEntry.getEncryptionIv()),
+                    encryptionKey);
                 passwordField.setText(decryptedPassword);
             } catch (Exception e) {
                 System.err.println("Error decrypting password: " + e.getMessage());
@@ -103,10 +100,6 @@ public class PasswordDialogController {
         this.encryptionKey = encryptionKey;
     }
     
-    public void setOnSaveCallback(Runnable callback) {
-        this.onSaveCallback = callback;
-    }
-    
     @FXML
     private void handleOk() {
         if (isInputValid()) {
@@ -121,6 +114,7 @@ public class PasswordDialogController {
                 
                 passwordEntry.setEncryptedPassword(encryptedData.getEncryptedData());
                 passwordEntry.setEncryptionIv(encryptedData.getIv());
+                passwordEntry.setPasswordFingerprint(encryptedData.getFingerprint());
                 passwordEntry.setCategory(categoryComboBox.getValue());
                 passwordEntry.setNotes(notesArea.getText());
                 
@@ -130,10 +124,6 @@ public class PasswordDialogController {
                     databaseService.updatePassword(passwordEntry);
                 }
                 
-                if (onSaveCallback != null) {
-                    onSaveCallback.run();
-                }
-                
                 okClicked = true;
                 dialogStage.close();
             } catch (Exception e) {
@@ -0,0 +1,119 @@
+package com.iftakher.passwordmanager.controllers;
+
+import com.iftakher.passwordmanager.services.PasswordGeneratorService;
+import javafx.fxml.FXML;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.RadioButton;
+import javafx.scene.control.Spinner;
+import javafx.scene.control.SpinnerValueFactory;
+import javafx.scene.control.TextField;
+import javafx.scene.control.ToggleGroup;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.ClipboardContent;
+import javafx.scene.layout.GridPane;
+import javafx.stage.Stage;
+
+import java.util.Arrays;
+
+/**
+ * Tools > Password Generator: random passwords or passphrases, regenerated as the
+ * options change, with the entropy of the current settings.
+ */
+public class PasswordGeneratorController {
+    private static final int DEFAULT_LENGTH = 20;
+    private static final int DEFAULT_WORDS = 6;
+
+    @FXML private ToggleGroup modeGroup;
+    @FXML private RadioButton passwordMode;
+    @FXML private RadioButton passphraseMode;
+    @FXML private GridPane passwordOptions;
+    @FXML private GridPane passphraseOptions;
+    @FXML private Spinner<Integer> lengthSpinner;
+    @FXML private CheckBox uppercaseCheckBox;
+    @FXML private CheckBox numbersCheckBox;
+    @FXML private CheckBox symbolsCheckBox;
+    @FXML private Spinner<Integer> wordsSpinner;
+    @FXML private TextField separatorField;
+    @FXML private CheckBox capitalizeCheckBox;
+    @FXML private CheckBox passphraseNumberCheckBox;
+    @FXML private TextField resultField;
+    @FXML private Label strengthLabel;
+
+    private Stage dialogStage;
+
+    public void setDialogStage(Stage dialogStage) {
+        this.dialogStage = dialogStage;
+    }
+
+    @FXML
+    private void initialize() {
+        lengthSpinner.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(
+            PasswordGeneratorService.MIN_LENGTH, PasswordGeneratorService.MAX_LENGTH, DEFAULT_LENGTH));
+        wordsSpinner.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(
+            PasswordGeneratorService.MIN_PASSPHRASE_WORDS, PasswordGeneratorService.MAX_PASSPHRASE_WORDS, DEFAULT_WORDS));
+
+        modeGroup.selectedToggleProperty().addListener((observable, oldValue, newValue) -> {
+            boolean passphrase = newValue == passphraseMode;
+            passwordOptions.setVisible(!passphrase);
+            passwordOptions.setManaged(!passphrase);
+            passphraseOptions.setVisible(passphrase);
+            passphraseOptions.setManaged(passphrase);
+            if (dialogStage != null) {
+                dialogStage.sizeToScene();
+            }
+            handleGenerate();
+        });
+        lengthSpinner.valueProperty().addListener((observable, oldValue, newValue) -> handleGenerate());
+        wordsSpinner.valueProperty().addListener((observable, oldValue, newValue) -> handleGenerate());
+        for (CheckBox option : Arrays.asList(uppercaseCheckBox, numbersCheckBox, symbolsCheckBox,
+                                             capitalizeCheckBox, passphraseNumberCheckBox)) {
+            option.selectedProperty().addListener((observable, oldValue, newValue) -> handleGenerate());
+        }
+        separatorField.textProperty().addListener((observable, oldValue, newValue) -> {
+            // One separator character at most
+            if (newValue.length() > 1) {
+                separatorField.setText(newValue.substring(newValue.length() - 1));
+                return;
+            }
+            handleGenerate();
+        });
+
+        handleGenerate();
+    }
+
+    @FXML
+    private void handleGenerate() {
+        char[] generated;
+        double bits;
+        if (passphraseMode.isSelected()) {
+            String separator = separatorField.getText();
+            generated = PasswordGeneratorService.generatePassphrase(wordsSpinner.getValue(),
+                separator == null || separator.isEmpty() ? ' ' : separator.charAt(0),
+                capitalizeCheckBox.isSelected(), passphraseNumberCheckBox.isSelected());
+            bits = PasswordGeneratorService.passphraseEntropyBits(wordsSpinner.getValue(),
+                passphraseNumberCheckBox.isSelected());
+        } else {
+            generated = PasswordGeneratorService.generateChars(lengthSpinner.getValue(),
+                uppercaseCheckBox.isSelected(), numbersCheckBox.isSelected(), symbolsCheckBox.isSelected());
+            bits = PasswordGeneratorService.passwordEntropyBits(lengthSpinner.getValue(),
+                uppercaseCheckBox.isSelected(), numbersCheckBox.isSelected(), symbolsCheckBox.isSelected());
+        }
+        // The text field needs a String; the array is wiped as soon as it is copied
+        resultField.setText(new String(generated));
+        Arrays.fill(generated, '\0');
+        strengthLabel.setText(String.format("Entropy: %.0f bits", bits));
+    }
+
+    @FXML
+    private void handleCopy() {
+        ClipboardContent content = new ClipboardContent();
+        content.putString(resultField.getText());
+        Clipboard.getSystemClipboard().setContent(content);
+    }
+
+    @FXML
+    private void handleClose() {
+        dialogStage.close();
+    }
+}
@@ -1,75 +1,163 @@
 package com.iftakher.passwordmanager.controllers;
 
-import com.iftakher.passwordmanager.models.PasswordEntry;
-import com.iftakher.passwordmanager.services.EncryptionService;
-import javafx.scene.control.*;
-import javafx.scene.layout.HBox;
-import javafx.scene.layout.Priority;
-import javax.crypto.SecretKey;
-
-public class PasswordTableCell extends TableCell<PasswordEntry, byte[]> {
-    private final TextField passwordField;
-    private final Button toggleButton;
-    private final HBox container;
-    private final SecretKey encryptionKey;
-    private boolean isVisible = false;
-
-    public PasswordTableCell(SecretKey encryptionKey) {
-        this.encryptionKey = encryptionKey;
-        
-        passwordField = new TextField();
-        passwordField.setEditable(false);
-        passwordField.getStyleClass().add("password-field");
-        
-        toggleButton = new Button("👁");
-        toggleButton.setOnAction(e -> togglePasswordVisibility());
-        
-        container = new HBox(5); // 5 pixels spacing
-        container.getChildren().addAll(passwordField, toggleButton);
-        HBox.setHgrow(passwordField, Priority.ALWAYS);
+import com.iftakher.passwordmanager.models.PasswordSummary;
+import javafx.concurrent.Task;
+import javafx.scene.control.ContentDisplay;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableCell;
+
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Password column cell. The cell is its own label: it shows a mask or the revealed
+ * password as text, with a small eye glyph that toggles reveal.
+ *
+ * Which rows are revealed is kept by entry id in a set owned by the table, not in
+ * the cell. Cells are recycled as the table scrolls, so state held by the cell would
+ * follow the cell onto other rows. The cell only keeps the text it is showing, so a
+ * re-layout of the same row doesn't fetch it again.
+ *
+ * A password that isn't already decrypted is read and decrypted on a background
+ * thread while the cell shows a placeholder. The result is only shown if the cell
+ * still holds the same version of the same entry by then.
+ */
+public class PasswordTableCell extends TableCell<PasswordSummary, PasswordSummary> {
+    private static final String MASK = "••••••••";
+    private static final String LOADING_TEXT = "Decrypting…";
+    private static final String ERROR_TEXT = "Error decrypting";
+
+    private static final ExecutorService REVEAL_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "password-reveal");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Loads and decrypts the password of a row, off the FX thread. The list only holds
+     * summaries, so the ciphertext is read from the database when the user asks for it.
+     */
+    @FunctionalInterface
+    public interface Revealer {
+        String reveal(PasswordSummary summary) throws Exception;
+    }
+
+    // The password if it is already decrypted, else null; must not block
+    private final Function<PasswordSummary, String> cached;
+    private final Revealer revealer;
+    private final Set<Long> revealedIds;
+    private final Label toggle = new Label("👁");
+    // The entry version this cell reveals, its text once known and the load under way
+    private PasswordSummary shown;
+    private String shownText;
+    private Task<String> pending;
+
+    public PasswordTableCell(Function<PasswordSummary, String> cached, Revealer revealer, Set<Long> revealedIds) {
+        this.cached = cached;
+        this.revealer = revealer;
+        this.revealedIds = revealedIds;
+
+        getStyleClass().add("password-cell");
+        setContentDisplay(ContentDisplay.RIGHT);
+        setGraphicTextGap(8);
+        toggle.getStyleClass().add("password-toggle");
+        toggle.setOnMouseClicked(e -> {
+            togglePasswordVisibility();
+            e.consume();
+        });
     }
 
     private void togglePasswordVisibility() {
-        if (getTableRow().getItem() == null) return;
-        
-        isVisible = !isVisible;
-        updateItem(getTableRow().getItem().getEncryptedPassword(), false);
+        PasswordSummary summary = getItem();
+        if (summary == null) return;
+
+        if (!revealedIds.remove(summary.getId())) {
+            revealedIds.add(summary.getId());
+        }
+        render(summary);
     }
 
     @Override
-    protected void updateItem(byte[] encryptedPassword, boolean empty) {
-        super.updateItem(encryptedPassword, empty);
-        
-        if (empty || encryptedPassword == null) {
+    protected void updateItem(PasswordSummary summary, boolean empty) {
+        super.updateItem(summary, empty);
+
+        if (empty || summary == null) {
+            forget();
+            setText(null);
             setGraphic(null);
             return;
         }
+        render(summary);
+    }
 
-        PasswordEntry entry = getTableRow().getItem();
-        if (entry == null) {
-            setGraphic(null);
+    private void render(PasswordSummary summary) {
+        setGraphic(toggle);
+        if (!revealedIds.contains(summary.getId())) {
+            forget();
+            setText(MASK);
+            return;
+        }
+        if (isSameVersion(shown, summary)) {
+            // A failed load stays failed until the row is hidden and revealed again
+            setText(shownText != null ? shownText : pending != null ? LOADING_TEXT : ERROR_TEXT);
+            return;
+        }
+        forget();
+        shown = summary;
+        String text = cached.apply(summary);
+        if (text != null) {
+            show(text);
             return;
         }
+        setText(LOADING_TEXT);
+        load(summary);
+    }
 
-        try {
-            if (isVisible) {
-                // Show decrypted password
-                String decrypted = EncryptionService.decryptData(
-                    new EncryptionService.EncryptedData(
-                        entry.getEncryptedPassword(),
-                        entry.getEncryptionIv()
-                    ),
-                    encryptionKey
-                );
-                passwordField.setText(decrypted);
-            } else {
-                // Show placeholder
-                passwordField.setText("••••••••");
+    private void load(PasswordSummary summary) {
+        Task<String> task = new Task<>() {
+            @Override
+            protected String call() throws Exception {
+                return revealer.reveal(summary);
             }
-            setGraphic(container);
-        } catch (Exception e) {
-            passwordField.setText("Error decrypting");
-            setGraphic(container);
+        };
+        task.setOnSucceeded(e -> {
+            if (isCurrent(task, summary)) {
+                show(task.getValue());
+            }
+        });
+        task.setOnFailed(e -> {
+            if (isCurrent(task, summary)) {
+                pending = null;
+                setText(ERROR_TEXT);
+            }
+        });
+        pending = task;
+        REVEAL_EXECUTOR.execute(task);
+    }
+
+    /** Whether the cell still shows the revealed row the task was started for. */
+    private boolean isCurrent(Task<String> task, PasswordSummary summary) {
+        return pending == task && isSameVersion(getItem(), summary) && revealedIds.contains(summary.getId());
+    }
+
+    private void show(String text) {
+        pending = null;
+        shownText = text;
+        setText(text);
+    }
+
+    private void forget() {
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
         }
+        shown = null;
+        shownText = null;
+    }
+
+    private static boolean isSameVersion(PasswordSummary a, PasswordSummary b) {
+        return a != null && b != null && a.getId() == b.getId() && a.getUpdatedAt() == b.getUpdatedAt();
     }
-}
\ No newline at end of file
+}
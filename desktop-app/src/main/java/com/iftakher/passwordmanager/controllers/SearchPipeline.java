@@ -0,0 +1,107 @@
+package com.iftakher.passwordmanager.controllers;
+
+import com.iftakher.passwordmanager.models.PasswordSummary;
+import javafx.animation.PauseTransition;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.util.Duration;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Debounced search for the vault table.
+ *
+ * Keystrokes restart a short pause; only when typing stops is a query run, on a
+ * single background thread. Starting a query cancels the previous one, so a
+ * stale result can never overwrite a newer one, and the finished result is
+ * applied to the table list as a diff rather than a full replace.
+ *
+ * All public methods must be called on the FX thread.
+ */
+public class SearchPipeline {
+    private static final Duration DEBOUNCE = Duration.millis(150);
+
+    private final Function<String, List<PasswordSummary>> searcher;
+    private final ObservableList<PasswordSummary> target;
+    private final PauseTransition debounce = new PauseTransition(DEBOUNCE);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "vault-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private String pendingQuery = "";
+    private Task<List<PasswordSummary>> running;
+
+    public SearchPipeline(Function<String, List<PasswordSummary>> searcher, ObservableList<PasswordSummary> target) {
+        this.searcher = searcher;
+        this.target = target;
+        debounce.setOnFinished(e -> run(pendingQuery));
+    }
+
+    /**
+     * Queue a query typed by the user; it runs once input has been idle for the debounce delay.
+     */
+    public void submit(String query) {
+        pendingQuery = query == null ? "" : query;
+        debounce.playFromStart();
+    }
+
+    /**
+     * Run a query right away, skipping the debounce (used after the vault changes).
+     */
+    public void run(String query) {
+        debounce.stop();
+        cancelRunning();
+        pendingQuery = query == null ? "" : query;
+
+        String snapshot = pendingQuery;
+        Task<List<PasswordSummary>> task = new Task<>() {
+            @Override
+            protected List<PasswordSummary> call() {
+                return searcher.apply(snapshot);
+            }
+        };
+        task.setOnSucceeded(e -> {
+            if (running == task) {
+                running = null;
+                ListDiff.apply(target, task.getValue(), PasswordSummary::getId);
+            }
+        });
+        task.setOnFailed(e -> {
+            if (running == task) {
+                running = null;
+            }
+            System.err.println("Search failed: " + task.getException().getMessage());
+        });
+        running = task;
+        executor.execute(task);
+    }
+
+    /**
+     * Whether a query has started but its result has not been applied yet.
+     */
+    public boolean isRunning() {
+        return running != null;
+    }
+
+    public void cancel() {
+        debounce.stop();
+        cancelRunning();
+    }
+
+    public void shutdown() {
+        cancel();
+        executor.shutdownNow();
+    }
+
+    private void cancelRunning() {
+        if (running != null) {
+            running.cancel();
+            running = null;
+        }
+    }
+}
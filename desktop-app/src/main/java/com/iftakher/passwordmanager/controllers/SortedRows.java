@@ -0,0 +1,38 @@
+package com.iftakher.passwordmanager.controllers;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Single-row edits on a list that is kept sorted, located by binary search so
+ * applying one change costs O(log n) comparisons instead of a re-sort or reload.
+ */
+public final class SortedRows {
+    private SortedRows() {}
+
+    /**
+     * Insert the item at its sorted position. Appending in order (the common
+     * case while pages load) is recognised without a search.
+     */
+    public static <T> void insert(List<T> rows, T item, Comparator<? super T> order) {
+        int size = rows.size();
+        if (size == 0 || order.compare(rows.get(size - 1), item) < 0) {
+            rows.add(item);
+            return;
+        }
+        int index = Collections.binarySearch(rows, item, order);
+        rows.add(index < 0 ? -index - 1 : index, item);
+    }
+
+    /**
+     * Remove the row that sorts equal to the item. Returns its former index, or -1.
+     */
+    public static <T> int remove(List<T> rows, T item, Comparator<? super T> order) {
+        int index = Collections.binarySearch(rows, item, order);
+        if (index >= 0) {
+            rows.remove(index);
+        }
+        return index;
+    }
+}
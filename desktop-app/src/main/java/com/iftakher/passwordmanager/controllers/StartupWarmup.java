@@ -0,0 +1,149 @@
+package com.iftakher.passwordmanager.controllers;
+
+import com.iftakher.passwordmanager.models.PasswordSummary;
+import com.iftakher.passwordmanager.services.DatabaseService;
+import com.iftakher.passwordmanager.services.EncryptionService;
+import com.iftakher.passwordmanager.services.UnlockService;
+import com.iftakher.passwordmanager.services.VaultChange;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Uses the time the user spends typing the master password to get everything that
+ * doesn't need the key ready: the main view's classes are loaded, the crypto providers
+ * and the KDF code are warmed up, the unlock settings and listing statements are run
+ * once, and the first page of the (non-secret) listing is read.
+ *
+ * Nothing here creates scene graph nodes, animations or observable lists. Those belong
+ * to the FX thread, so main.fxml itself is loaded there after unlock; the background
+ * only reads the classes it needs, without initializing them.
+ *
+ * Every step is optional. Login takes whatever has finished and does the rest itself,
+ * so a failed or slow warm-up only costs the time it would have taken anyway.
+ *
+ * Each phase is timed and logged relative to the start of the warm-up, including the
+ * unlock itself and the time from unlock to the first rows in the table.
+ */
+public class StartupWarmup {
+    // Classes main.fxml and its controller need first; loaded but left uninitialized
+    private static final String[] MAIN_VIEW_CLASSES = {
+        "com.iftakher.passwordmanager.controllers.MainController",
+        "com.iftakher.passwordmanager.controllers.SearchPipeline",
+        "com.iftakher.passwordmanager.controllers.PagedSummaryList",
+        "com.iftakher.passwordmanager.controllers.PasswordTableCell",
+        "com.iftakher.passwordmanager.controllers.VaultLoader",
+        "com.iftakher.passwordmanager.services.SummaryIndex",
+        "javafx.scene.control.TableView",
+        "javafx.scene.control.TableColumn",
+        "javafx.scene.control.skin.TableViewSkin",
+        "javafx.scene.control.MenuBar",
+        "javafx.scene.control.TextField",
+        "javafx.scene.control.ProgressBar",
+        "javafx.collections.transformation.SortedList",
+        "javafx.animation.PauseTransition",
+    };
+
+    /** Vault size and first listing page, read before unlock. */
+    public static final class Listing {
+        private final int size;
+        private final List<PasswordSummary> firstPage;
+
+        Listing(int size, List<PasswordSummary> firstPage) {
+            this.size = size;
+            this.firstPage = firstPage;
+        }
+
+        public int getSize() { return size; }
+
+        public List<PasswordSummary> getFirstPage() { return firstPage; }
+    }
+
+    private final long startedAt = System.nanoTime();
+    private final DatabaseService databaseService;
+    private final ExecutorService executor = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "startup-warmup");
+        thread.setDaemon(true);
+        // Stay out of the way of the FX thread and the unlock
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private final CompletableFuture<Listing> listing;
+    // A prefetched page that a write has made stale must not be shown
+    private volatile boolean vaultChanged;
+    private final VaultChange.Listener changeListener = change -> vaultChanged = true;
+
+    private StartupWarmup(DatabaseService databaseService) {
+        this.databaseService = databaseService;
+        databaseService.addChangeListener(changeListener);
+
+        executor.execute(() -> timed("main view classes", () -> {
+            ClassLoader classLoader = getClass().getClassLoader();
+            for (String name : MAIN_VIEW_CLASSES) {
+                Class.forName(name, false, classLoader);
+            }
+            return null;
+        }));
+        listing = CompletableFuture.supplyAsync(() -> {
+            timed("crypto", () -> {
+                EncryptionService.warmUp();
+                return null;
+            });
+            return timed("database", () -> {
+                new UnlockService(databaseService).warmUp();
+                int size = databaseService.countPasswords();
+                return new Listing(size, databaseService.getSummariesPage(null, VaultLoader.FIRST_PAGE_SIZE));
+            });
+        }, executor);
+    }
+
+    /**
+     * Start warming up in the background. Call on the FX thread.
+     */
+    public static StartupWarmup start(DatabaseService databaseService) {
+        System.out.println("Startup warm-up started");
+        return new StartupWarmup(databaseService);
+    }
+
+    /**
+     * The prefetched listing if it is ready and still current, else null. Never waits.
+     */
+    public Listing takeListing() {
+        Listing prefetched = listing.getNow(null);
+        return vaultChanged ? null : prefetched;
+    }
+
+    /**
+     * Log how long a phase took that started at the given System.nanoTime().
+     */
+    public void phase(String name, long started) {
+        long now = System.nanoTime();
+        System.out.printf("Startup phase %s: %d ms (at +%d ms)%n",
+            name, (now - started) / 1_000_000, (now - startedAt) / 1_000_000);
+    }
+
+    /**
+     * Stop listening for vault changes and let the warm-up threads finish. Safe to call
+     * more than once.
+     */
+    public void close() {
+        databaseService.removeChangeListener(changeListener);
+        executor.shutdown();
+    }
+
+    /** Run and time one step; a failed step is logged and yields null. */
+    private <T> T timed(String name, Callable<T> step) {
+        long started = System.nanoTime();
+        try {
+            T result = step.call();
+            phase(name, started);
+            return result;
+        } catch (Exception e) {
+            System.err.println("Startup warm-up of " + name + " failed: " + e.getMessage());
+            return null;
+        }
+    }
+}
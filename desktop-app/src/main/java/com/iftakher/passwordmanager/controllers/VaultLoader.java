@@ -0,0 +1,82 @@
+package com.iftakher.passwordmanager.controllers;
+
+import com.iftakher.passwordmanager.models.PasswordSummary;
+import com.iftakher.passwordmanager.services.DatabaseService;
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Background task that streams the vault out of SQLite page by page and hands
+ * each page to the FX thread as soon as it is read. The first page is kept small
+ * so the table shows a screenful right away; later pages are larger to keep the
+ * number of round trips down. Cancelling the task stops both the reads and any
+ * pages that were already queued for the FX thread.
+ */
+public class VaultLoader extends Task<Integer> {
+    static final int FIRST_PAGE_SIZE = 100;
+    private static final int PAGE_SIZE = 1000;
+
+    private final DatabaseService databaseService;
+    private final Consumer<List<PasswordSummary>> onPage;
+    private final PasswordSummary after;
+
+    public VaultLoader(DatabaseService databaseService, Consumer<List<PasswordSummary>> onPage) {
+        this(databaseService, onPage, null);
+    }
+
+    /**
+     * Load the rows after the given one, e.g. when the first page was read ahead of time.
+     */
+    public VaultLoader(DatabaseService databaseService, Consumer<List<PasswordSummary>> onPage,
+                       PasswordSummary after) {
+        this.databaseService = databaseService;
+        this.onPage = onPage;
+        this.after = after;
+    }
+
+    @Override
+    protected Integer call() throws Exception {
+        int loaded = 0;
+        String lastTitle = after == null ? null : after.getTitle();
+        long lastId = after == null ? 0 : after.getId();
+        int pageSize = after == null ? FIRST_PAGE_SIZE : PAGE_SIZE;
+
+        while (!isCancelled()) {
+            List<PasswordSummary> page = databaseService.getSummariesPage(lastTitle, lastId, pageSize);
+            if (page.isEmpty()) {
+                break;
+            }
+
+            Platform.runLater(() -> {
+                // Drop pages that arrive after the load was cancelled
+                if (!isCancelled()) {
+                    onPage.accept(page);
+                }
+            });
+
+            loaded += page.size();
+            PasswordSummary last = page.get(page.size() - 1);
+            lastTitle = last.getTitle();
+            lastId = last.getId();
+
+            if (page.size() < pageSize) {
+                break;
+            }
+            pageSize = PAGE_SIZE;
+        }
+        return loaded;
+    }
+
+    /**
+     * Start this loader on a daemon thread so it never keeps the JVM alive.
+     */
+    public VaultLoader start() {
+        Thread thread = new Thread(this, "vault-loader");
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+}
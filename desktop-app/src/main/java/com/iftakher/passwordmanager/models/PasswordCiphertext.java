@@ -0,0 +1,40 @@
+package com.iftakher.passwordmanager.models;
+
+/**
+ * An entry's encrypted password and just enough to name the entry: what a pass over
+ * every password, like the strength audit, needs.
+ *
+ * Like {@link PasswordSummary}, this leaves out what the pass doesn't use (website,
+ * category, notes, timestamps, fingerprint), so the whole vault can be held at once.
+ */
+public final class PasswordCiphertext {
+    private final long id;
+    private final String title;
+    private final String username;
+    private final byte[] encryptedPassword;
+    private final byte[] encryptionIv;
+
+    public PasswordCiphertext(long id, String title, String username, byte[] encryptedPassword,
+                              byte[] encryptionIv) {
+        this.id = id;
+        this.title = title;
+        this.username = username;
+        this.encryptedPassword = encryptedPassword;
+        this.encryptionIv = encryptionIv;
+    }
+
+    public static PasswordCiphertext of(PasswordEntry entry) {
+        return new PasswordCiphertext(entry.getId(), entry.getTitle(), entry.getUsername(),
+                                      entry.getEncryptedPassword(), entry.getEncryptionIv());
+    }
+
+    public long getId() { return id; }
+
+    public String getTitle() { return title; }
+
+    public String getUsername() { return username; }
+
+    public byte[] getEncryptedPassword() { return encryptedPassword; }
+
+    public byte[] getEncryptionIv() { return encryptionIv; }
+}
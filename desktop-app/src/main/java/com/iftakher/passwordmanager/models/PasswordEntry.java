@@ -10,6 +10,8 @@ public class PasswordEntry {
     private String username;
     private byte[] encryptedPassword;
     private byte[] encryptionIv;
+    // Keyed hash of the plaintext password, for finding reused passwords; null until computed
+    private byte[] passwordFingerprint;
     private String category;
     private String notes;
     private long createdAt;
@@ -36,6 +38,15 @@ public class PasswordEntry {
              System.currentTimeMillis(), System.currentTimeMillis());
     }
 
+    /**
+     * Copy of another entry, so it can be edited without touching the original.
+     */
+    public PasswordEntry(PasswordEntry other) {
+        this(other.id, other.title, other.website, other.username, other.encryptedPassword,
+             other.encryptionIv, other.category, other.notes, other.createdAt, other.updatedAt);
+        this.passwordFingerprint = other.passwordFingerprint;
+    }
+
     // Getters and Setters
     public long getId() { return id; }
     public void setId(long id) { this.id = id; }
@@ -55,6 +66,9 @@ public class PasswordEntry {
     public byte[] getEncryptionIv() { return encryptionIv; }
     public void setEncryptionIv(byte[] encryptionIv) { this.encryptionIv = encryptionIv; }
 
+    public byte[] getPasswordFingerprint() { return passwordFingerprint; }
+    public void setPasswordFingerprint(byte[] passwordFingerprint) { this.passwordFingerprint = passwordFingerprint; }
+
     public String getCategory() { return category; }
     public void setCategory(String category) { this.category = category; }
 
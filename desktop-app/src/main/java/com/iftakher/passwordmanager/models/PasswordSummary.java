@@ -0,0 +1,80 @@
+package com.iftakher.passwordmanager.models;
+
+import java.util.Objects;
+
+/**
+ * The fields of a password entry that the vault list shows and searches.
+ *
+ * Summaries deliberately leave out the ciphertext, IV and notes so a large vault
+ * can be listed without holding any of them in memory; the full
+ * {@link PasswordEntry} is read by id when it is actually needed.
+ */
+public final class PasswordSummary {
+    private final long id;
+    private final String title;
+    private final String website;
+    private final String username;
+    private final String category;
+    private final long createdAt;
+    private final long updatedAt;
+
+    public PasswordSummary(long id, String title, String website, String username,
+                           String category, long createdAt, long updatedAt) {
+        this.id = id;
+        this.title = title;
+        this.website = website;
+        this.username = username;
+        this.category = category;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    public static PasswordSummary of(PasswordEntry entry) {
+        return new PasswordSummary(entry.getId(), entry.getTitle(), entry.getWebsite(), entry.getUsername(),
+                                   entry.getCategory(), entry.getCreatedAt(), entry.getUpdatedAt());
+    }
+
+    public long getId() { return id; }
+
+    public String getTitle() { return title; }
+
+    public String getWebsite() { return website; }
+
+    public String getUsername() { return username; }
+
+    public String getCategory() { return category; }
+
+    public long getCreatedAt() { return createdAt; }
+
+    public long getUpdatedAt() { return updatedAt; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PasswordSummary that = (PasswordSummary) o;
+        return id == that.id &&
+                createdAt == that.createdAt &&
+                updatedAt == that.updatedAt &&
+                Objects.equals(title, that.title) &&
+                Objects.equals(website, that.website) &&
+                Objects.equals(username, that.username) &&
+                Objects.equals(category, that.category);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, title, website, username, category, createdAt, updatedAt);
+    }
+
+    @Override
+    public String toString() {
+        return "PasswordSummary{" +
+                "id=" + id +
+                ", title='" + title + '\'' +
+                ", website='" + website + '\'' +
+                ", username='" + username + '\'' +
+                ", category='" + category + '\'' +
+                '}';
+    }
+}
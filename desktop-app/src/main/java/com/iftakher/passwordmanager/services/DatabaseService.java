@@ -1,23 +1,46 @@
 package com.iftakher.passwordmanager.services;
 
+import com.iftakher.passwordmanager.models.PasswordCiphertext;
 import com.iftakher.passwordmanager.models.PasswordEntry;
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
-import java.security.spec.InvalidKeySpecException;
+import com.iftakher.passwordmanager.models.PasswordSummary;
 import java.sql.*;
 import java.util.ArrayList;
-import java.util.Base64;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CopyOnWriteArrayList;
 import javax.crypto.SecretKey;
+import org.sqlite.SQLiteConfig;
 
+/**
+ * SQLite storage for the vault.
+ *
+ * The database runs in WAL mode with one writer connection and a small pool of
+ * read-only connections. Writes are serialised on this object (callers that need
+ * several writes to be atomic with respect to each other synchronise on it too);
+ * reads borrow a pooled connection and run concurrently with each other and with
+ * the writer, always seeing the last committed state.
+ *
+ * Every committed change to the passwords table is published as a {@link VaultChange}.
+ */
 public class DatabaseService {
     private static final String DB_NAME = "passwords.db";
+    private static final Path DB_FILE;
     private static final String DB_URL;
+    private static final int WRITE_BATCH_SIZE = 500;
+    public static final int DEFAULT_BULK_CHUNK_SIZE = 500;
+    private static final int READER_POOL_SIZE = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final int BUSY_TIMEOUT_MS = 5000;
+    private static final int CACHE_SIZE_KIB = 16 * 1024;
+    private static final long MMAP_SIZE_BYTES = 64L * 1024 * 1024;
     
     static {
         // Store database in user's home directory to avoid permission issues
@@ -34,32 +57,81 @@ public class DatabaseService {
             System.err.println("Warning: Could not create app data directory: " + e.getMessage());
         }
         
+        DB_FILE = Paths.get(appDataDir, DB_NAME);
         DB_URL = "jdbc:sqlite:" + appDataDir + "/" + DB_NAME;
-        System.out.println("Database location: " + appDataDir + "/" + DB_NAME);
     }
     
+    private static final String INSERT_PASSWORD_SQL = """
+        INSERT INTO passwords (title, website, username, encrypted_password,
+        encryption_iv, category, notes, created_at, updated_at, password_fingerprint)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+        """;
+    private static final String LAST_INSERT_ID_SQL = "SELECT last_insert_rowid()";
+    private static final String SAVE_SETTING_SQL = "INSERT OR REPLACE INTO app_settings (key, value) VALUES (?, ?)";
+    // bm25 weights in column order: title, website, username, category, notes
+    private static final String FTS_SEARCH_SQL =
+        "SELECT " + PasswordSummaryMapper.COLUMNS + " FROM passwords"
+            + " JOIN (SELECT rowid, bm25(passwords_fts, 10.0, 5.0, 5.0, 2.0, 1.0) AS rank"
+            + " FROM passwords_fts WHERE passwords_fts MATCH ?) AS hits ON hits.rowid = passwords.id"
+            + " ORDER BY hits.rank, title, id";
+    // Word matches ranked by bm25, then rows that only contain the words mid-word, by title
+    private static final String FTS_SUBSTRING_SEARCH_SQL =
+        "SELECT " + PasswordSummaryMapper.COLUMNS + " FROM passwords"
+            + " JOIN (SELECT rowid, 0 AS tier, bm25(passwords_fts, 10.0, 5.0, 5.0, 2.0, 1.0) AS rank"
+            + " FROM passwords_fts WHERE passwords_fts MATCH ?1"
+            + " UNION ALL SELECT rowid, 1, 0 FROM passwords_fts_trigram WHERE passwords_fts_trigram MATCH ?2"
+            + " AND rowid NOT IN (SELECT rowid FROM passwords_fts WHERE passwords_fts MATCH ?1))"
+            + " AS hits ON hits.rowid = passwords.id"
+            + " ORDER BY hits.tier, hits.rank, title, id";
+    private static final String ALL_PASSWORDS_SQL =
+        "SELECT " + PasswordEntryMapper.COLUMNS + " FROM passwords ORDER BY title ASC, id ASC";
+    // Both the grouping and the lookups are answered from idx_passwords_fingerprint
+    private static final String REUSED_PASSWORDS_SQL =
+        "SELECT " + PasswordSummaryMapper.COLUMNS + ", password_fingerprint FROM passwords"
+            + " WHERE password_fingerprint IN (SELECT password_fingerprint FROM passwords"
+            + " WHERE password_fingerprint IS NOT NULL GROUP BY password_fingerprint HAVING COUNT(*) > 1)"
+            + " ORDER BY password_fingerprint, title, id";
+
+    private final String dbUrl;
     private Connection connection;
-    private byte[] masterPasswordSalt;
+    private StatementCache statements;
+    private ReaderPool readers;
+    private final List<VaultChange.Listener> changeListeners = new CopyOnWriteArrayList<>();
 
     public DatabaseService() {
+        this(DB_URL);
+    }
+
+    /**
+     * Open (or create) a vault database at the given file instead of the user's default
+     * one, e.g. a scratch vault for benchmarks and tools.
+     */
+    public DatabaseService(Path databaseFile) {
+        this("jdbc:sqlite:" + databaseFile.toAbsolutePath());
+    }
+
+    private DatabaseService(String dbUrl) {
+        this.dbUrl = dbUrl;
         initializeDatabase();
     }
+
+    /**
+     * The file {@link #DatabaseService()} opens.
+     */
+    public static Path getDefaultDatabaseFile() {
+        return DB_FILE;
+    }
     
+    /**
+     * Verify the master password and return the vault key (see {@link UnlockService}).
+     */
     public SecretKey deriveKeyFromPassword(String masterPassword) {
         try {
-            // Get or create salt
-            if (masterPasswordSalt == null) {
-                String saltStr = getSetting("master_password_salt");
-                if (saltStr == null || saltStr.isEmpty()) {
-                    masterPasswordSalt = EncryptionService.generateSalt();
-                    setSetting("master_password_salt", Base64.getEncoder().encodeToString(masterPasswordSalt));
-                } else {
-                    masterPasswordSalt = Base64.getDecoder().decode(saltStr);
-                }
+            SecretKey key = new UnlockService(this).unlock(masterPassword, ProgressListener.NONE);
+            if (key == null) {
+                throw new IllegalArgumentException("Invalid master password");
             }
-            
-            // Generate key from password and salt
-            return EncryptionService.generateKeyFromPassword(masterPassword, masterPasswordSalt);
+            return key;
         } catch (Exception e) {
             throw new RuntimeException("Failed to derive encryption key: " + e.getMessage(), e);
         }
@@ -67,11 +139,15 @@ public class DatabaseService {
 
     private void initializeDatabase() {
         try {
-            connection = DriverManager.getConnection(DB_URL);
+            connection = DriverManager.getConnection(dbUrl, connectionConfig(false).toProperties());
             if (connection == null) {
                 throw new SQLException("Failed to create database connection");
             }
             createTables();
+            statements = new StatementCache(connection);
+            // Readers are opened after the writer has switched the file to WAL
+            readers = new ReaderPool(dbUrl, connectionConfig(true).toProperties(), READER_POOL_SIZE);
+            System.out.println("Database location: " + dbUrl.substring("jdbc:sqlite:".length()));
             System.out.println("Database initialized successfully");
         } catch (SQLException e) {
             System.err.println("Error initializing database: " + e.getMessage());
@@ -80,6 +156,115 @@ public class DatabaseService {
         }
     }
 
+    /**
+     * Pragma profile for every connection. WAL with synchronous=NORMAL is durable
+     * against application crashes and only risks the last commits on power loss,
+     * in exchange for not syncing on every transaction.
+     */
+    private static SQLiteConfig connectionConfig(boolean readOnly) {
+        SQLiteConfig config = new SQLiteConfig();
+        if (readOnly) {
+            config.setReadOnly(true);
+        } else {
+            // journal_mode is stored in the file, so only the writer sets it
+            config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        }
+        config.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL);
+        config.setCacheSize(-CACHE_SIZE_KIB);
+        config.setPragma(SQLiteConfig.Pragma.MMAP_SIZE, Long.toString(MMAP_SIZE_BYTES));
+        config.setTempStore(SQLiteConfig.TempStore.MEMORY);
+        config.setBusyTimeout(BUSY_TIMEOUT_MS);
+        return config;
+    }
+
+    /**
+     * Full-text index over every metadata column, kept in step with the passwords table
+     * by triggers. It stores no copy of the text (content='passwords'), only the index.
+     * Updates that only touch the ciphertext, such as a key rotation, leave it alone.
+     */
+    private void createSearchIndex(Statement stmt) throws SQLException {
+        boolean exists;
+        try (ResultSet rs = stmt.executeQuery("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = 'passwords_fts'")) {
+            exists = rs.next();
+        }
+        stmt.execute("""
+            CREATE VIRTUAL TABLE IF NOT EXISTS passwords_fts USING fts5 (
+                title, website, username, category, notes,
+                content = 'passwords', content_rowid = 'id',
+                tokenize = 'unicode61 remove_diacritics 2', prefix = '2 3'
+            )
+            """);
+        stmt.execute("""
+            CREATE TRIGGER IF NOT EXISTS passwords_fts_insert AFTER INSERT ON passwords BEGIN
+                INSERT INTO passwords_fts (rowid, title, website, username, category, notes)
+                VALUES (new.id, new.title, new.website, new.username, new.category, new.notes);
+            END
+            """);
+        stmt.execute("""
+            CREATE TRIGGER IF NOT EXISTS passwords_fts_delete AFTER DELETE ON passwords BEGIN
+                INSERT INTO passwords_fts (passwords_fts, rowid, title, website, username, category, notes)
+                VALUES ('delete', old.id, old.title, old.website, old.username, old.category, old.notes);
+            END
+            """);
+        stmt.execute("""
+            CREATE TRIGGER IF NOT EXISTS passwords_fts_update
+            AFTER UPDATE OF title, website, username, category, notes ON passwords BEGIN
+                INSERT INTO passwords_fts (passwords_fts, rowid, title, website, username, category, notes)
+                VALUES ('delete', old.id, old.title, old.website, old.username, old.category, old.notes);
+                INSERT INTO passwords_fts (rowid, title, website, username, category, notes)
+                VALUES (new.id, new.title, new.website, new.username, new.category, new.notes);
+            END
+            """);
+        if (!exists) {
+            // Vaults created before the index existed
+            stmt.execute("INSERT INTO passwords_fts (passwords_fts) VALUES ('rebuild')");
+        }
+        createSubstringIndex(stmt);
+    }
+
+    /**
+     * Trigram index over title, website and username, so a search also finds words in the
+     * middle of those fields ("mail" in "gmail.com") that the word index can't. Category and
+     * notes are left out: they would double the size of the index.
+     */
+    private void createSubstringIndex(Statement stmt) throws SQLException {
+        boolean exists;
+        try (ResultSet rs = stmt.executeQuery("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = 'passwords_fts_trigram'")) {
+            exists = rs.next();
+        }
+        stmt.execute("""
+            CREATE VIRTUAL TABLE IF NOT EXISTS passwords_fts_trigram USING fts5 (
+                title, website, username,
+                content = 'passwords', content_rowid = 'id',
+                tokenize = 'trigram'
+            )
+            """);
+        stmt.execute("""
+            CREATE TRIGGER IF NOT EXISTS passwords_fts_trigram_insert AFTER INSERT ON passwords BEGIN
+                INSERT INTO passwords_fts_trigram (rowid, title, website, username)
+                VALUES (new.id, new.title, new.website, new.username);
+            END
+            """);
+        stmt.execute("""
+            CREATE TRIGGER IF NOT EXISTS passwords_fts_trigram_delete AFTER DELETE ON passwords BEGIN
+                INSERT INTO passwords_fts_trigram (passwords_fts_trigram, rowid, title, website, username)
+                VALUES ('delete', old.id, old.title, old.website, old.username);
+            END
+            """);
+        stmt.execute("""
+            CREATE TRIGGER IF NOT EXISTS passwords_fts_trigram_update
+            AFTER UPDATE OF title, website, username ON passwords BEGIN
+                INSERT INTO passwords_fts_trigram (passwords_fts_trigram, rowid, title, website, username)
+                VALUES ('delete', old.id, old.title, old.website, old.username);
+                INSERT INTO passwords_fts_trigram (rowid, title, website, username)
+                VALUES (new.id, new.title, new.website, new.username);
+            END
+            """);
+        if (!exists) {
+            stmt.execute("INSERT INTO passwords_fts_trigram (passwords_fts_trigram) VALUES ('rebuild')");
+        }
+    }
+
     private void createTables() throws SQLException {
         String createPasswordsTable = """
             CREATE TABLE IF NOT EXISTS passwords (
@@ -92,7 +277,8 @@ public class DatabaseService {
                 category TEXT DEFAULT 'General',
                 notes TEXT,
                 created_at INTEGER NOT NULL,
-                updated_at INTEGER NOT NULL
+                updated_at INTEGER NOT NULL,
+                password_fingerprint BLOB
             )
             """;
         
@@ -106,169 +292,582 @@ public class DatabaseService {
         try (Statement stmt = connection.createStatement()) {
             stmt.execute(createPasswordsTable);
             stmt.execute(createSettingsTable);
+            // Supports ORDER BY title and keyset paging without a full sort per page
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_passwords_title_id ON passwords (title, id)");
+            addFingerprintColumn(stmt);
+            createSearchIndex(stmt);
             
             // Initialize master password and salt if not exists
             stmt.execute("INSERT OR IGNORE INTO app_settings (key, value) VALUES ('master_password_hash', ''), ('master_password_salt', '')");
         }
     }
     
+    /**
+     * Keyed fingerprints of the passwords (see {@link EncryptionService#fingerprint}), so
+     * reuse can be found by grouping without decrypting anything. Vaults from before the
+     * column get it empty; {@link PasswordReuse} fills it in on first use.
+     */
+    private void addFingerprintColumn(Statement stmt) throws SQLException {
+        boolean exists = false;
+        try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(passwords)")) {
+            while (rs.next()) {
+                exists |= "password_fingerprint".equals(rs.getString("name"));
+            }
+        }
+        if (!exists) {
+            stmt.execute("ALTER TABLE passwords ADD COLUMN password_fingerprint BLOB");
+        }
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_passwords_fingerprint ON passwords (password_fingerprint)");
+    }
+
     public String getSetting(String key) throws SQLException {
-        String sql = "SELECT value FROM app_settings WHERE key = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        return readers.read(reader -> {
+            PreparedStatement pstmt = reader.get("SELECT value FROM app_settings WHERE key = ?");
             pstmt.setString(1, key);
             try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getString("value");
+                return rs.next() ? rs.getString(1) : null;
+            }
+        });
+    }
+
+    /**
+     * Read several settings with one query. Missing keys are absent from the map.
+     */
+    public Map<String, String> getSettings(String... keys) throws SQLException {
+        String placeholders = String.join(", ", Collections.nCopies(keys.length, "?"));
+        String sql = "SELECT key, value FROM app_settings WHERE key IN (" + placeholders + ")";
+        return readers.read(reader -> {
+            Map<String, String> settings = new HashMap<>();
+            PreparedStatement pstmt = reader.get(sql);
+            for (int i = 0; i < keys.length; i++) {
+                pstmt.setString(i + 1, keys[i]);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    settings.put(rs.getString(1), rs.getString(2));
                 }
             }
-        }
-        return null;
+            return settings;
+        });
     }
 
-    public void setSetting(String key, String value) throws SQLException {
-        String sql = "INSERT OR REPLACE INTO app_settings (key, value) VALUES (?, ?)";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, key);
-            pstmt.setString(2, value);
-            pstmt.executeUpdate();
+    public synchronized void setSetting(String key, String value) throws SQLException {
+        saveSetting(key, value);
+    }
+
+    public synchronized long addPassword(PasswordEntry password) throws SQLException {
+        PreparedStatement pstmt = statements.get(INSERT_PASSWORD_SQL);
+        bindInsert(pstmt, password);
+        pstmt.executeUpdate();
+
+        try (ResultSet rs = statements.get(LAST_INSERT_ID_SQL).executeQuery()) {
+            password.setId(rs.next() ? rs.getLong(1) : -1);
         }
+        publish(VaultChange.Type.INSERTED, List.of(password));
+        return password.getId();
     }
 
-    public long addPassword(PasswordEntry password) throws SQLException {
-        String sql = """
-            INSERT INTO passwords (title, website, username, encrypted_password, 
-            encryption_iv, category, notes, created_at, updated_at)
-            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
-            """;
-        
-        try (PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setString(1, password.getTitle());
-            pstmt.setString(2, password.getWebsite());
-            pstmt.setString(3, password.getUsername());
-            pstmt.setBytes(4, password.getEncryptedPassword());
-            pstmt.setBytes(5, password.getEncryptionIv());
-            pstmt.setString(6, password.getCategory());
-            pstmt.setString(7, password.getNotes());
-            pstmt.setLong(8, password.getCreatedAt());
-            pstmt.setLong(9, password.getUpdatedAt());
-            
-            pstmt.executeUpdate();
-            
-            try (ResultSet rs = pstmt.getGeneratedKeys()) {
-                if (rs.next()) {
-                    return rs.getLong(1);
+    public int addPasswords(List<PasswordEntry> passwords, ProgressListener progress) throws SQLException {
+        return addPasswords(passwords, DEFAULT_BULK_CHUNK_SIZE, passwords.size(), progress);
+    }
+
+    /**
+     * Insert many entries at once using JDBC batching inside a single transaction.
+     * Rows are sent to SQLite chunkSize at a time; either every row is committed or,
+     * if anything fails, none are. The new ids are written back into the entries, and
+     * they are published as one change once committed. Returns the number of rows inserted.
+     */
+    public synchronized int addPasswords(Iterable<PasswordEntry> passwords, int chunkSize,
+                                         long expectedTotal, ProgressListener progress) throws SQLException {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be at least 1");
+        }
+
+        List<PasswordEntry> chunk = new ArrayList<>(chunkSize);
+        List<PasswordEntry> insertedEntries = new ArrayList<>();
+        int inserted = 0;
+
+        PreparedStatement pstmt = statements.get(INSERT_PASSWORD_SQL);
+        PreparedStatement lastId = statements.get(LAST_INSERT_ID_SQL);
+        connection.setAutoCommit(false);
+        try {
+            for (PasswordEntry password : passwords) {
+                bindInsert(pstmt, password);
+                pstmt.addBatch();
+                chunk.add(password);
+                insertedEntries.add(password);
+
+                if (chunk.size() == chunkSize) {
+                    inserted += flushInsertChunk(pstmt, lastId, chunk);
+                    progress.onProgress(inserted, expectedTotal);
                 }
             }
+            inserted += flushInsertChunk(pstmt, lastId, chunk);
+            progress.onProgress(inserted, expectedTotal);
+
+            connection.commit();
+            publish(VaultChange.Type.INSERTED, insertedEntries);
+            return inserted;
+        } catch (SQLException | RuntimeException e) {
+            // Don't leave a half-built batch on the cached statement
+            pstmt.clearBatch();
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
         }
-        return -1;
     }
 
-    public void updatePassword(PasswordEntry password) throws SQLException {
+    private static void bindInsert(PreparedStatement pstmt, PasswordEntry password) throws SQLException {
+        pstmt.setString(1, password.getTitle());
+        pstmt.setString(2, password.getWebsite());
+        pstmt.setString(3, password.getUsername());
+        pstmt.setBytes(4, password.getEncryptedPassword());
+        pstmt.setBytes(5, password.getEncryptionIv());
+        pstmt.setString(6, password.getCategory());
+        pstmt.setString(7, password.getNotes());
+        pstmt.setLong(8, password.getCreatedAt());
+        pstmt.setLong(9, password.getUpdatedAt());
+        pstmt.setBytes(10, password.getPasswordFingerprint());
+    }
+
+    private int flushInsertChunk(PreparedStatement pstmt, PreparedStatement lastId, List<PasswordEntry> chunk)
+            throws SQLException {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        pstmt.executeBatch();
+
+        // Inside our own transaction the AUTOINCREMENT ids of a batch are consecutive
+        try (ResultSet rs = lastId.executeQuery()) {
+            long id = rs.next() ? rs.getLong(1) : -1;
+            for (int i = chunk.size() - 1; i >= 0; i--) {
+                chunk.get(i).setId(id--);
+            }
+        }
+        int count = chunk.size();
+        chunk.clear();
+        return count;
+    }
+
+    public synchronized void updatePassword(PasswordEntry password) throws SQLException {
         String sql = """
-            UPDATE passwords 
-            SET title = ?, website = ?, username = ?, encrypted_password = ?, 
-                encryption_iv = ?, category = ?, notes = ?, updated_at = ?
+            UPDATE passwords
+            SET title = ?, website = ?, username = ?, encrypted_password = ?,
+                encryption_iv = ?, category = ?, notes = ?, updated_at = ?, password_fingerprint = ?
             WHERE id = ?
             """;
         
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, password.getTitle());
-            pstmt.setString(2, password.getWebsite());
-            pstmt.setString(3, password.getUsername());
-            pstmt.setBytes(4, password.getEncryptedPassword());
-            pstmt.setBytes(5, password.getEncryptionIv());
-            pstmt.setString(6, password.getCategory());
-            pstmt.setString(7, password.getNotes());
-            pstmt.setLong(8, System.currentTimeMillis());
-            pstmt.setLong(9, password.getId());
-            
-            pstmt.executeUpdate();
+        long updatedAt = System.currentTimeMillis();
+        PreparedStatement pstmt = statements.get(sql);
+        pstmt.setString(1, password.getTitle());
+        pstmt.setString(2, password.getWebsite());
+        pstmt.setString(3, password.getUsername());
+        pstmt.setBytes(4, password.getEncryptedPassword());
+        pstmt.setBytes(5, password.getEncryptionIv());
+        pstmt.setString(6, password.getCategory());
+        pstmt.setString(7, password.getNotes());
+        pstmt.setLong(8, updatedAt);
+        pstmt.setBytes(9, password.getPasswordFingerprint());
+        pstmt.setLong(10, password.getId());
+        
+        if (pstmt.executeUpdate() > 0) {
+            password.setUpdatedAt(updatedAt);
+            publish(VaultChange.Type.UPDATED, List.of(password));
         }
     }
 
-    public void deletePassword(long id) throws SQLException {
-        String sql = "DELETE FROM passwords WHERE id = ?";
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setLong(1, id);
-            pstmt.executeUpdate();
+    public synchronized void deletePassword(long id) throws SQLException {
+        // Read the row first so listeners learn what was removed
+        PreparedStatement select = statements.get("SELECT " + PasswordEntryMapper.COLUMNS + " FROM passwords WHERE id = ?");
+        select.setLong(1, id);
+        List<PasswordEntry> deleted;
+        try (ResultSet rs = select.executeQuery()) {
+            deleted = mapAll(rs);
+        }
+
+        PreparedStatement pstmt = statements.get("DELETE FROM passwords WHERE id = ?");
+        pstmt.setLong(1, id);
+        if (pstmt.executeUpdate() > 0) {
+            publish(VaultChange.Type.DELETED, deleted);
         }
     }
 
     public List<PasswordEntry> getAllPasswords() throws SQLException {
-        List<PasswordEntry> passwords = new ArrayList<>();
-        String sql = "SELECT * FROM passwords ORDER BY title ASC";
-        
-        try (Statement stmt = connection.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            
-            while (rs.next()) {
-                PasswordEntry password = new PasswordEntry(
-                    rs.getLong("id"),
-                    rs.getString("title"),
-                    rs.getString("website"),
-                    rs.getString("username"),
-                    rs.getBytes("encrypted_password"),
-                    rs.getBytes("encryption_iv"),
-                    rs.getString("category"),
-                    rs.getString("notes"),
-                    rs.getLong("created_at"),
-                    rs.getLong("updated_at")
-                );
-                passwords.add(password);
+        return readers.read(reader -> {
+            try (ResultSet rs = reader.get(ALL_PASSWORDS_SQL).executeQuery()) {
+                return mapAll(rs);
+            }
+        });
+    }
+
+    /**
+     * Every entry's encrypted password with only its id, title and username, for passes
+     * over the whole vault that don't need the rest of the row.
+     */
+    public List<PasswordCiphertext> getPasswordCiphertexts() throws SQLException {
+        return readers.read(reader -> {
+            PreparedStatement pstmt = reader.get("SELECT " + PasswordCiphertextMapper.COLUMNS + " FROM passwords");
+            pstmt.setFetchSize(256);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                List<PasswordCiphertext> ciphertexts = new ArrayList<>();
+                PasswordCiphertextMapper mapper = PasswordCiphertextMapper.of(rs);
+                while (rs.next()) {
+                    ciphertexts.add(mapper.map(rs));
+                }
+                return ciphertexts;
+            }
+        });
+    }
+
+    /**
+     * Callback for entries read through a streaming cursor.
+     */
+    @FunctionalInterface
+    public interface EntryVisitor {
+        void visit(PasswordEntry entry) throws Exception;
+    }
+
+    /**
+     * Stream every entry in title order to the visitor without materialising the vault.
+     * Only one row is held in memory at a time. The cursor reads a consistent snapshot,
+     * so edits made while the visitor runs are neither seen nor blocked.
+     */
+    public void forEachPassword(EntryVisitor visitor) throws Exception {
+        readers.read(reader -> {
+            PreparedStatement pstmt = reader.get(ALL_PASSWORDS_SQL);
+            pstmt.setFetchSize(256);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                PasswordEntryMapper mapper = PasswordEntryMapper.of(rs);
+                while (rs.next()) {
+                    visitor.visit(mapper.map(rs));
+                }
             }
+            return null;
+        });
+    }
+
+    /**
+     * Position of a row in the vault's (title, id) order, the key keyset paging seeks by.
+     */
+    public static final class SortKey {
+        private final String title;
+        private final long id;
+
+        public SortKey(String title, long id) {
+            this.title = title;
+            this.id = id;
         }
-        return passwords;
+
+        public static SortKey of(PasswordSummary summary) {
+            return new SortKey(summary.getTitle(), summary.getId());
+        }
+
+        public String getTitle() { return title; }
+
+        public long getId() { return id; }
     }
 
-    public List<PasswordEntry> searchPasswords(String query) throws SQLException {
-        List<PasswordEntry> passwords = new ArrayList<>();
+    public int countPasswords() throws SQLException {
+        return readers.read(reader -> {
+            try (ResultSet rs = reader.get("SELECT COUNT(*) FROM passwords").executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        });
+    }
+
+    /**
+     * Read one page of summaries in (title, id) order, starting strictly after the given key
+     * (null for the first page). The seek is an index range scan, so any page costs the
+     * same no matter how deep into the vault it is.
+     */
+    public List<PasswordSummary> getSummariesPage(SortKey after, int limit) throws SQLException {
+        return after == null
+            ? getSummariesPage(null, 0, limit)
+            : getSummariesPage(after.getTitle(), after.getId(), limit);
+    }
+
+    /**
+     * Read one page of summaries in (title, id) order, starting strictly after the given key.
+     * Pass a null afterTitle to read the first page. Short queries like this let callers
+     * stream the vault without holding a cursor open on the shared connection, and the
+     * listing projection leaves ciphertext and notes in the database.
+     */
+    public List<PasswordSummary> getSummariesPage(String afterTitle, long afterId, int limit) throws SQLException {
+        String sql = afterTitle == null
+            ? "SELECT " + PasswordSummaryMapper.COLUMNS + " FROM passwords ORDER BY title ASC, id ASC LIMIT ?"
+            : "SELECT " + PasswordSummaryMapper.COLUMNS + " FROM passwords"
+              + " WHERE (title, id) > (?, ?)"
+              + " ORDER BY title ASC, id ASC LIMIT ?";
+
+        return readers.read(reader -> {
+            PreparedStatement pstmt = reader.get(sql);
+            if (afterTitle == null) {
+                pstmt.setInt(1, limit);
+            } else {
+                pstmt.setString(1, afterTitle);
+                pstmt.setLong(2, afterId);
+                pstmt.setInt(3, limit);
+            }
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return mapSummaries(rs);
+            }
+        });
+    }
+
+    /**
+     * Keys of the last row of every full page, so page p (from 1) can be read by seeking
+     * past boundary p - 1 without walking the pages before it. Comes from one scan of
+     * the (title, id) index, which never touches the table rows.
+     */
+    public List<SortKey> getPageBoundaries(int pageSize) throws SQLException {
         String sql = """
-            SELECT * FROM passwords 
-            WHERE title LIKE ? OR website LIKE ? OR username LIKE ? 
-            ORDER BY title ASC
+            SELECT title, id FROM (
+                SELECT title, id, ROW_NUMBER() OVER (ORDER BY title ASC, id ASC) AS position
+                FROM passwords
+            ) WHERE position % ? = 0 ORDER BY position
             """;
-        
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            String searchPattern = "%" + query + "%";
+        return readers.read(reader -> {
+            PreparedStatement pstmt = reader.get(sql);
+            pstmt.setInt(1, pageSize);
+            List<SortKey> boundaries = new ArrayList<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    boundaries.add(new SortKey(rs.getString(1), rs.getLong(2)));
+                }
+            }
+            return boundaries;
+        });
+    }
+
+    /**
+     * Number of rows that sort before the key, i.e. its index in the full listing.
+     */
+    public int countBefore(SortKey key) throws SQLException {
+        return readers.read(reader -> {
+            PreparedStatement pstmt = reader.get("SELECT COUNT(*) FROM passwords WHERE (title, id) < (?, ?)");
+            pstmt.setString(1, key.getTitle());
+            pstmt.setLong(2, key.getId());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        });
+    }
+
+    /**
+     * Full-text search over title, website, username, category and notes. Rows where
+     * every word of the query starts a word in some field come first, best match first
+     * (bm25, with hits in the title weighted highest). When every word is at least three
+     * characters long, rows whose title, website or username only contain the words inside
+     * other words ("mail" in "gmail.com") follow in title order. Queries with no words in
+     * them, e.g. "@", fall back to a substring match. A blank query returns the whole
+     * vault in title order.
+     */
+    public List<PasswordSummary> searchPasswords(String query) throws SQLException {
+        String match = ftsQuery(query);
+        if (match == null) {
+            return searchPasswordsLike(query == null ? "" : query.trim());
+        }
+        String substringMatch = ftsSubstringQuery(query);
+        return readers.read(reader -> {
+            PreparedStatement pstmt = reader.get(substringMatch == null ? FTS_SEARCH_SQL : FTS_SUBSTRING_SEARCH_SQL);
+            pstmt.setString(1, match);
+            if (substringMatch != null) {
+                pstmt.setString(2, substringMatch);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return mapSummaries(rs);
+            }
+        });
+    }
+
+    /**
+     * Turn user input into an FTS5 query: each word becomes a quoted prefix term and
+     * the terms are ANDed. Returns null if the input has no words to match.
+     */
+    static String ftsQuery(String query) {
+        return ftsQuery(query, "*", 1);
+    }
+
+    /**
+     * Turn user input into a query for the trigram index: each word becomes a quoted
+     * substring term and the terms are ANDed. Returns null if the input has no words, or
+     * a word shorter than the three characters a trigram needs.
+     */
+    static String ftsSubstringQuery(String query) {
+        return ftsQuery(query, "", 3);
+    }
+
+    private static String ftsQuery(String query, String suffix, int minWordLength) {
+        if (query == null) {
+            return null;
+        }
+        StringBuilder match = new StringBuilder();
+        for (String word : query.split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (word.codePointCount(0, word.length()) < minWordLength) {
+                return null;
+            }
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            // Words are letters and digits only, so quoting needs no escaping
+            match.append('"').append(word).append('"').append(suffix);
+        }
+        return match.length() == 0 ? null : match.toString();
+    }
+
+    private List<PasswordSummary> searchPasswordsLike(String query) throws SQLException {
+        String sql = "SELECT " + PasswordSummaryMapper.COLUMNS + " FROM passwords"
+            + " WHERE title LIKE ?1 OR website LIKE ?1 OR username LIKE ?1 OR category LIKE ?1 OR notes LIKE ?1"
+            + " ORDER BY title ASC, id ASC";
+
+        String searchPattern = "%" + query + "%";
+        return readers.read(reader -> {
+            PreparedStatement pstmt = reader.get(sql);
             pstmt.setString(1, searchPattern);
-            pstmt.setString(2, searchPattern);
-            pstmt.setString(3, searchPattern);
-            
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return mapSummaries(rs);
+            }
+        });
+    }
+
+    /**
+     * Read one full entry, including ciphertext and notes. Returns null if it no longer exists.
+     */
+    public PasswordEntry getPassword(long id) throws SQLException {
+        return readers.read(reader -> {
+            PreparedStatement pstmt = reader.get("SELECT " + PasswordEntryMapper.COLUMNS + " FROM passwords WHERE id = ?");
+            pstmt.setLong(1, id);
             try (ResultSet rs = pstmt.executeQuery()) {
+                List<PasswordEntry> found = mapAll(rs);
+                return found.isEmpty() ? null : found.get(0);
+            }
+        });
+    }
+
+    /**
+     * Entries that share a password with at least one other entry, one group per
+     * password, largest groups first. Answered from the stored fingerprints with one
+     * query; nothing is decrypted.
+     */
+    public List<List<PasswordSummary>> findReusedPasswords() throws SQLException {
+        List<List<PasswordSummary>> groups = readers.read(reader -> {
+            List<List<PasswordSummary>> found = new ArrayList<>();
+            try (ResultSet rs = reader.get(REUSED_PASSWORDS_SQL).executeQuery()) {
+                PasswordSummaryMapper mapper = PasswordSummaryMapper.of(rs);
+                int fingerprint = rs.findColumn("password_fingerprint");
+                byte[] previous = null;
                 while (rs.next()) {
-                    PasswordEntry password = new PasswordEntry(
-                        rs.getLong("id"),
-                        rs.getString("title"),
-                        rs.getString("website"),
-                        rs.getString("username"),
-                        rs.getBytes("encrypted_password"),
-                        rs.getBytes("encryption_iv"),
-                        rs.getString("category"),
-                        rs.getString("notes"),
-                        rs.getLong("created_at"),
-                        rs.getLong("updated_at")
-                    );
-                    passwords.add(password);
+                    byte[] current = rs.getBytes(fingerprint);
+                    if (!Arrays.equals(current, previous)) {
+                        found.add(new ArrayList<>());
+                        previous = current;
+                    }
+                    found.get(found.size() - 1).add(mapper.map(rs));
                 }
             }
+            return found;
+        });
+        groups.sort(Comparator.comparingInt((List<PasswordSummary> group) -> group.size()).reversed());
+        return groups;
+    }
+
+    /**
+     * Entries stored before fingerprints existed, or imported without one.
+     */
+    public List<PasswordEntry> getPasswordsWithoutFingerprint() throws SQLException {
+        return readers.read(reader -> {
+            try (ResultSet rs = reader.get("SELECT " + PasswordEntryMapper.COLUMNS
+                    + " FROM passwords WHERE password_fingerprint IS NULL").executeQuery()) {
+                return mapAll(rs);
+            }
+        });
+    }
+
+    /**
+     * Store fingerprints computed for entries that had none, in one transaction. A row
+     * that got a fingerprint in the meantime (it was edited, or the key rotated) is left
+     * alone. Nothing visible changes, so no change event is published.
+     */
+    public synchronized int setPasswordFingerprints(List<PasswordEntry> entries) throws SQLException {
+        PreparedStatement pstmt = statements.get(
+            "UPDATE passwords SET password_fingerprint = ? WHERE id = ? AND password_fingerprint IS NULL");
+        connection.setAutoCommit(false);
+        try {
+            int updated = 0;
+            for (int from = 0; from < entries.size(); from += WRITE_BATCH_SIZE) {
+                for (PasswordEntry entry : entries.subList(from, Math.min(from + WRITE_BATCH_SIZE, entries.size()))) {
+                    pstmt.setBytes(1, entry.getPasswordFingerprint());
+                    pstmt.setLong(2, entry.getId());
+                    pstmt.addBatch();
+                }
+                for (int count : pstmt.executeBatch()) {
+                    updated += count;
+                }
+            }
+            connection.commit();
+            return updated;
+        } catch (SQLException | RuntimeException e) {
+            pstmt.clearBatch();
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
         }
-        return passwords;
     }
 
-    public void saveSetting(String key, String value) throws SQLException {
-        String sql = """
-            INSERT OR REPLACE INTO app_settings (key, value)
-            VALUES (?, ?)
-            """;
-        
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, key);
-            pstmt.setString(2, value);
-            pstmt.executeUpdate();
+    /**
+     * Read only the ciphertext and IV of one entry, for revealing it from the list.
+     * Returns null if the entry no longer exists.
+     */
+    public EncryptionService.EncryptedData getEncryptedPassword(long id) throws SQLException {
+        return readers.read(reader -> {
+            PreparedStatement pstmt = reader.get("SELECT encrypted_password, encryption_iv FROM passwords WHERE id = ?");
+            pstmt.setLong(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? new EncryptionService.EncryptedData(rs.getBytes(1), rs.getBytes(2)) : null;
+            }
+        });
+    }
+
+    private static List<PasswordSummary> mapSummaries(ResultSet rs) throws SQLException {
+        List<PasswordSummary> summaries = new ArrayList<>();
+        PasswordSummaryMapper mapper = PasswordSummaryMapper.of(rs);
+        while (rs.next()) {
+            summaries.add(mapper.map(rs));
         }
+        return summaries;
+    }
+
+    private static List<PasswordEntry> mapAll(ResultSet rs) throws SQLException {
+        List<PasswordEntry> passwords = new ArrayList<>();
+        PasswordEntryMapper mapper = PasswordEntryMapper.of(rs);
+        while (rs.next()) {
+            passwords.add(mapper.map(rs));
+        }
+        return passwords;
+    }
+
+    public synchronized void saveSetting(String key, String value) throws SQLException {
+        PreparedStatement pstmt = statements.get(SAVE_SETTING_SQL);
+        pstmt.setString(1, key);
+        pstmt.setString(2, value);
+        pstmt.executeUpdate();
     }
 
-    public void close() {
+    public synchronized void close() {
+        // Close the writer last so it checkpoints the WAL back into the database file
+        if (readers != null) {
+            readers.close();
+        }
+        if (statements != null) {
+            statements.close();
+        }
         if (connection != null) {
             try {
                 connection.close();
@@ -281,151 +880,130 @@ public class DatabaseService {
     /**
      * Change the master password: verify the old password, generate a new salt,
      * re-encrypt all stored passwords with a key derived from the new master password,
-     * and update stored settings (salt and master_password_hash).
-     * Returns true on success.
+     * and update stored settings. Returns true on success.
      */
-    public synchronized boolean changeMasterPassword(String oldPassword, String newPassword) {
-        try {
-            // create a backup of the DB before making changes
-            try {
-                String dbPath = DB_URL.substring("jdbc:sqlite:".length());
-                String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-                String backupName = dbPath + ".bak." + timestamp;
-                Files.copy(Paths.get(dbPath), Paths.get(backupName), StandardCopyOption.REPLACE_EXISTING);
-                System.out.println("Database backup created: " + backupName);
-            } catch (Exception be) {
-                // Log backup failure but continue (caller should have full backup ideally)
-                System.err.println("Warning: failed to create DB backup before changing master password: " + be.getMessage());
-            }
-
-            // verify old password
-            if (!verifyMasterPassword(oldPassword)) {
-                return false;
-            }
-
-            // derive old key (uses current salt)
-            javax.crypto.SecretKey oldKey = deriveKeyFromPassword(oldPassword);
-
-            // generate new salt and persist it
-            byte[] newSalt = EncryptionService.generateSalt();
-            String newSaltB64 = Base64.getEncoder().encodeToString(newSalt);
-            saveSetting("master_password_salt", newSaltB64);
-            // update in-memory salt
-            this.masterPasswordSalt = newSalt;
-
-            // derive new key
-            javax.crypto.SecretKey newKey = EncryptionService.generateKeyFromPassword(newPassword, newSalt);
-
-            // Re-encrypt all password entries
-            List<PasswordEntry> entries = getAllPasswords();
-            for (PasswordEntry entry : entries) {
-                try {
-                    // decrypt with old key
-                    EncryptionService.EncryptedData oldData = new EncryptionService.EncryptedData(
-                        entry.getEncryptedPassword(), entry.getEncryptionIv());
-                    String plain = EncryptionService.decryptData(oldData, oldKey);
-
-                    // encrypt with new key
-                    EncryptionService.EncryptedData newData = EncryptionService.encryptData(plain, newKey);
-
-                    entry.setEncryptedPassword(newData.getEncryptedData());
-                    entry.setEncryptionIv(newData.getIv());
-                    updatePassword(entry);
-                } catch (Exception e) {
-                    System.err.println("Failed to re-encrypt entry id=" + entry.getId() + ": " + e.getMessage());
-                    // continue with others
-                }
-            }
-
-            // compute and store new master password hash (hashPassword reads stored salt)
-            String newHash = hashPassword(newPassword);
-            saveSetting("master_password_hash", newHash);
+    public boolean changeMasterPassword(String oldPassword, String newPassword) {
+        return changeMasterPassword(oldPassword, newPassword, ProgressListener.NONE) != null;
+    }
 
-            return true;
+    /**
+     * Same as {@link #changeMasterPassword(String, String)}, reporting progress as entries
+     * are re-encrypted and written. Returns the new vault key, or null if the old password
+     * is wrong or the change failed (in which case nothing was modified).
+     */
+    public SecretKey changeMasterPassword(String oldPassword, String newPassword, ProgressListener progress) {
+        try {
+            return new UnlockService(this).changeMasterPassword(oldPassword, newPassword, progress);
         } catch (Exception e) {
             System.err.println("Error changing master password: " + e.getMessage());
-            return false;
+            return null;
         }
     }
     
     public boolean verifyMasterPassword(String password) {
         try {
-            String storedHash = getSetting("master_password_hash");
-            if (storedHash == null || storedHash.isEmpty()) {
-                // First time setup
-                String hashedPassword = hashPassword(password);
-                saveSetting("master_password_hash", hashedPassword);
-                return true;
-            }
-            // Try current scheme (PBKDF2 with salt)
-            try {
-                String computed = hashPassword(password);
-                if (storedHash.equals(computed)) {
-                    return true;
-                }
-            } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
-                // fall through to legacy checks
-            }
-
-            // Legacy: stored as plaintext password (older versions). Accept and migrate.
-            if (storedHash.equals(password)) {
-                try {
-                    String newHash = hashPassword(password);
-                    saveSetting("master_password_hash", newHash);
-                } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
-                    // If migration fails, log and still allow login for compatibility
-                    System.err.println("Warning: failed to migrate master password hash: " + e.getMessage());
-                }
-                return true;
-            }
-
-            // Legacy: maybe previously stored SHA-256 (base64) using EncryptionService.hashPassword
-            try {
-                String legacySha = EncryptionService.hashPassword(password);
-                if (storedHash.equals(legacySha)) {
-                    // migrate to PBKDF2-backed hash
-                    try {
-                        String newHash = hashPassword(password);
-                        saveSetting("master_password_hash", newHash);
-                    } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
-                        System.err.println("Warning: failed to migrate legacy SHA hash: " + e.getMessage());
-                    }
-                    return true;
-                }
-            } catch (NoSuchAlgorithmException ignored) {
-                // ignore
-            }
-
-            return false;
-        } catch (SQLException | NoSuchAlgorithmException | InvalidKeySpecException e) {
+            return new UnlockService(this).unlock(password, ProgressListener.NONE) != null;
+        } catch (Exception e) {
             System.err.println("Error verifying master password: " + e.getMessage());
             return false;
         }
     }
-    
-    private String hashPassword(String password) throws NoSuchAlgorithmException, InvalidKeySpecException {
-        String storedSalt;
+
+    /**
+     * Write re-encrypted entries and the matching key settings in one transaction,
+     * after taking a file backup of the database. Either all of it is committed or none.
+     */
+    public synchronized void rotateVaultKey(List<PasswordEntry> reEncrypted, Map<String, String> settings,
+                                            ProgressListener progress, long total) throws SQLException {
+        if (!reEncrypted.isEmpty()) {
+            createBackup();
+        }
+
+        connection.setAutoCommit(false);
         try {
-            storedSalt = getSetting("master_password_salt");
-        } catch (SQLException e) {
-            storedSalt = null;
+            for (Map.Entry<String, String> setting : settings.entrySet()) {
+                saveSetting(setting.getKey(), setting.getValue());
+            }
+            writeReEncryptedEntries(reEncrypted, progress, total);
+            connection.commit();
+            if (!reEncrypted.isEmpty()) {
+                publish(VaultChange.Type.UPDATED, reEncrypted);
+            }
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
         }
+    }
+
+    public void addChangeListener(VaultChange.Listener listener) {
+        changeListeners.add(listener);
+    }
 
-        // Generate new salt if not exists
-        if (storedSalt == null || storedSalt.isEmpty()) {
-            byte[] salt = new byte[16];
-            SecureRandom random = new SecureRandom();
-            random.nextBytes(salt);
-            storedSalt = Base64.getEncoder().encodeToString(salt);
+    public void removeChangeListener(VaultChange.Listener listener) {
+        changeListeners.remove(listener);
+    }
+
+    private void publish(VaultChange.Type type, List<PasswordEntry> entries) {
+        if (entries.isEmpty() || changeListeners.isEmpty()) {
+            return;
+        }
+        VaultChange change = new VaultChange(type, entries);
+        for (VaultChange.Listener listener : changeListeners) {
             try {
-                saveSetting("master_password_salt", storedSalt);
-            } catch (SQLException e) {
-                throw new RuntimeException("Failed to save salt", e);
+                listener.onVaultChange(change);
+            } catch (RuntimeException e) {
+                // The change is already committed; a broken listener must not undo that
+                System.err.println("Error in vault change listener: " + e.getMessage());
             }
         }
+    }
 
-        byte[] salt = Base64.getDecoder().decode(storedSalt);
-        byte[] hash = EncryptionService.pbkdf2(password.toCharArray(), salt, 65536, 256);
-        return Base64.getEncoder().encodeToString(hash);
+    private void createBackup() {
+        // create a backup of the DB before making changes
+        try {
+            String dbPath = dbUrl.substring("jdbc:sqlite:".length());
+            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
+            String backupName = dbPath + ".bak." + timestamp;
+            // Copying the file alone would miss commits still in the WAL; VACUUM INTO
+            // writes a consistent snapshot of the whole database instead
+            Files.deleteIfExists(Paths.get(backupName));
+            try (PreparedStatement pstmt = connection.prepareStatement("VACUUM INTO ?")) {
+                pstmt.setString(1, backupName);
+                pstmt.executeUpdate();
+            }
+            System.out.println("Database backup created: " + backupName);
+        } catch (Exception be) {
+            // Log backup failure but continue (caller should have full backup ideally)
+            System.err.println("Warning: failed to create DB backup before re-keying the vault: " + be.getMessage());
+        }
+    }
+
+    private void writeReEncryptedEntries(List<PasswordEntry> entries, ProgressListener progress, long total)
+            throws SQLException {
+        String sql = "UPDATE passwords SET encrypted_password = ?, encryption_iv = ?, password_fingerprint = ? WHERE id = ?";
+        long written = 0;
+
+        PreparedStatement pstmt = statements.get(sql);
+        try {
+            for (PasswordEntry entry : entries) {
+                pstmt.setBytes(1, entry.getEncryptedPassword());
+                pstmt.setBytes(2, entry.getEncryptionIv());
+                pstmt.setBytes(3, entry.getPasswordFingerprint());
+                pstmt.setLong(4, entry.getId());
+                pstmt.addBatch();
+
+                if (++written % WRITE_BATCH_SIZE == 0) {
+                    pstmt.executeBatch();
+                    progress.onProgress(entries.size() + written, total);
+                }
+            }
+            pstmt.executeBatch();
+            progress.onProgress(entries.size() + written, total);
+        } catch (SQLException | RuntimeException e) {
+            pstmt.clearBatch();
+            throw e;
+        }
     }
-}
\ No newline at end of file
+}
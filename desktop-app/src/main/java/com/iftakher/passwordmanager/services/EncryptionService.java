@@ -3,83 +3,433 @@ import javax.crypto.*;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.KeySpec;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 
 public class EncryptionService {
     public static final String ALGORITHM = "AES/CBC/PKCS5Padding";
+    static final String GCM_ALGORITHM = "AES/GCM/NoPadding";
     private static final String KEY_ALGORITHM = "AES";
     private static final String PBKDF_ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
     
     private static final int ITERATIONS = 100000;
+    // Enough rounds for the JIT to compile HMAC-SHA256, a fraction of a real derivation
+    private static final int WARM_UP_ITERATIONS = 10000;
     private static final int KEY_LENGTH = 256;
     private static final int IV_LENGTH = 16;
     private static final int SALT_LENGTH = 16;
+    private static final String FINGERPRINT_INFO = "passhelper password fingerprint v1";
+    // 128 bits is plenty to tell passwords apart and keeps the index small
+    public static final int FINGERPRINT_LENGTH = 16;
 
     public static class EncryptedData {
         private final byte[] encryptedData;
         private final byte[] iv;
+        private final byte[] fingerprint;
 
         public EncryptedData(byte[] encryptedData, byte[] iv) {
+            this(encryptedData, iv, null);
+        }
+
+        public EncryptedData(byte[] encryptedData, byte[] iv, byte[] fingerprint) {
             this.encryptedData = encryptedData;
             this.iv = iv;
+            this.fingerprint = fingerprint;
         }
 
         public byte[] getEncryptedData() { return encryptedData; }
         public byte[] getIv() { return iv; }
+        /** Keyed fingerprint of the plaintext, when it was sealed as an entry password; else null. */
+        public byte[] getFingerprint() { return fingerprint; }
+    }
+
+    /** A fingerprint MAC and the vault key it was derived from. */
+    private static class Fingerprinter {
+        final WeakReference<SecretKey> vaultKey;
+        final Mac mac;
+
+        Fingerprinter(SecretKey vaultKey, Mac mac) {
+            this.vaultKey = new WeakReference<>(vaultKey);
+            this.mac = mac;
+        }
+    }
+
+    /** A thread's cached instances that hold key material; {@link #forgetKeys} drops them. */
+    private static class KeyCache {
+        volatile Cipher cbc;
+        volatile Cipher gcm;
+        volatile Fingerprinter fingerprinter;
+    }
+
+    // Cipher, SecretKeyFactory and SecureRandom lookups go through the provider list on
+    // every getInstance call, so each thread keeps its own ready-made instances. Ciphers
+    // keep the last key they were initialised with, so they live in the KeyCache below
+    private static final ThreadLocal<SecretKeyFactory> KEY_FACTORY = ThreadLocal.withInitial(() -> {
+        try {
+            return SecretKeyFactory.getInstance(PBKDF_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(SecureRandom::new);
+    private static final ThreadLocal<CharsetEncoder> UTF8_ENCODER = ThreadLocal.withInitial(StandardCharsets.UTF_8::newEncoder);
+    private static final ThreadLocal<CharsetDecoder> UTF8_DECODER = ThreadLocal.withInitial(StandardCharsets.UTF_8::newDecoder);
+    // Per-thread plaintext scratch space; always wiped before it is released
+    private static final ThreadLocal<ByteBuffer> SCRATCH = ThreadLocal.withInitial(() -> ByteBuffer.allocate(256));
+    // Weakly held, so forgetKeys can reach the caches of pool threads without keeping dead ones
+    private static final Set<KeyCache> KEY_CACHES = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+    private static final ThreadLocal<KeyCache> KEY_CACHE = ThreadLocal.withInitial(() -> {
+        KeyCache cache = new KeyCache();
+        KEY_CACHES.add(cache);
+        return cache;
+    });
+
+    private static Cipher newCipher(String transformation) {
+        try {
+            return Cipher.getInstance(transformation);
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+            throw new IllegalStateException("Cipher " + transformation + " is not available", e);
+        }
+    }
+
+    static Cipher cbcCipher() {
+        KeyCache cache = KEY_CACHE.get();
+        Cipher cipher = cache.cbc;
+        if (cipher == null) {
+            cipher = newCipher(ALGORITHM);
+            cache.cbc = cipher;
+        }
+        return cipher;
+    }
+
+    static Cipher gcmCipher() {
+        KeyCache cache = KEY_CACHE.get();
+        Cipher cipher = cache.gcm;
+        if (cipher == null) {
+            cipher = newCipher(GCM_ALGORITHM);
+            cache.gcm = cipher;
+        }
+        return cipher;
+    }
+
+    static void nextBytes(byte[] bytes) {
+        RANDOM.get().nextBytes(bytes);
     }
 
     public static SecretKey generateKeyFromPassword(String password, byte[] salt) 
             throws NoSuchAlgorithmException, InvalidKeySpecException {
-        SecretKeyFactory factory = SecretKeyFactory.getInstance(PBKDF_ALGORITHM);
         KeySpec spec = new PBEKeySpec(password.toCharArray(), salt, ITERATIONS, KEY_LENGTH);
-        SecretKey tmp = factory.generateSecret(spec);
+        SecretKey tmp = KEY_FACTORY.get().generateSecret(spec);
         return new SecretKeySpec(tmp.getEncoded(), KEY_ALGORITHM);
     }
 
+    /**
+     * Encrypt an entry password. The result carries the password's fingerprint too.
+     */
     public static EncryptedData encryptData(String data, SecretKey key) throws Exception {
+        byte[] plain = data.getBytes(StandardCharsets.UTF_8);
+        try {
+            return sealPassword(ByteBuffer.wrap(plain), key);
+        } finally {
+            Arrays.fill(plain, (byte) 0);
+        }
+    }
+
+    /**
+     * Encrypt an entry password held in a char array, with its fingerprint. The UTF-8
+     * bytes only ever live in per-thread scratch space, which is wiped before returning.
+     */
+    public static EncryptedData encryptChars(char[] data, SecretKey key) throws Exception {
+        ByteBuffer plain = encodeToScratch(CharBuffer.wrap(data));
+        try {
+            return sealPassword(plain, key);
+        } finally {
+            wipe(plain);
+        }
+    }
+
+    private static EncryptedData sealPassword(ByteBuffer plain, SecretKey key) throws Exception {
+        byte[] fingerprint = fingerprint(plain, key);
+        EncryptedData sealed = encrypt(plain, key);
+        return new EncryptedData(sealed.getEncryptedData(), sealed.getIv(), fingerprint);
+    }
+
+    /**
+     * Encrypt the remaining bytes of the buffer with a fresh IV.
+     */
+    public static EncryptedData encrypt(ByteBuffer plaintext, SecretKey key) throws Exception {
+        byte[] iv = new byte[IV_LENGTH];
+        RANDOM.get().nextBytes(iv);
+
+        Cipher cipher = cbcCipher();
+        cipher.init(Cipher.ENCRYPT_MODE, key, new IvParameterSpec(iv));
+        ByteBuffer encrypted = ByteBuffer.allocate(cipher.getOutputSize(plaintext.remaining()));
+        cipher.doFinal(plaintext, encrypted);
+
+        return new EncryptedData(encrypted.array(), iv);
+    }
+
+    /**
+     * Create a cipher initialised for streaming use (e.g. CipherOutputStream / CipherInputStream).
+     * Unlike the other methods this returns a new instance, since a stream owns its cipher
+     * for as long as it is open.
+     */
+    public static Cipher initCipher(int mode, SecretKey key, byte[] iv) throws Exception {
         Cipher cipher = Cipher.getInstance(ALGORITHM);
+        cipher.init(mode, key, new IvParameterSpec(iv));
+        return cipher;
+    }
+
+    public static byte[] generateIv() {
         byte[] iv = new byte[IV_LENGTH];
-        new SecureRandom().nextBytes(iv);
-        IvParameterSpec ivSpec = new IvParameterSpec(iv);
-        
-        cipher.init(Cipher.ENCRYPT_MODE, key, ivSpec);
-        byte[] encrypted = cipher.doFinal(data.getBytes(java.nio.charset.StandardCharsets.UTF_8));
-        
-        return new EncryptedData(encrypted, iv);
+        RANDOM.get().nextBytes(iv);
+        return iv;
     }
 
     public static String decryptData(EncryptedData encryptedData, SecretKey key) throws Exception {
-        Cipher cipher = Cipher.getInstance(ALGORITHM);
-        IvParameterSpec ivSpec = new IvParameterSpec(encryptedData.getIv());
-        
-        cipher.init(Cipher.DECRYPT_MODE, key, ivSpec);
-        byte[] decrypted = cipher.doFinal(encryptedData.getEncryptedData());
-        
-        return new String(decrypted, java.nio.charset.StandardCharsets.UTF_8);
+        ByteBuffer plain = decryptToScratch(encryptedData, key);
+        try {
+            return StandardCharsets.UTF_8.decode(plain).toString();
+        } finally {
+            wipe(plain);
+        }
+    }
+
+    /**
+     * Decrypt into a caller-supplied buffer, which must have room for the ciphertext length.
+     * Returns the number of plaintext bytes written; nothing else is allocated.
+     */
+    public static int decryptInto(EncryptedData encryptedData, SecretKey key, ByteBuffer out) throws Exception {
+        Cipher cipher = cbcCipher();
+        cipher.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(encryptedData.getIv()));
+        return cipher.doFinal(ByteBuffer.wrap(encryptedData.getEncryptedData()), out);
+    }
+
+    /**
+     * Decrypt a password into a caller-supplied char buffer. The intermediate UTF-8 bytes
+     * stay in per-thread scratch space and are wiped. Returns the number of chars written.
+     */
+    public static int decryptInto(EncryptedData encryptedData, SecretKey key, CharBuffer out) throws Exception {
+        ByteBuffer plain = decryptToScratch(encryptedData, key);
+        try {
+            int start = out.position();
+            CharsetDecoder decoder = UTF8_DECODER.get().reset();
+            CoderResult result = decoder.decode(plain, out, true);
+            if (!result.isUnderflow()) {
+                result.throwException();
+            }
+            decoder.flush(out);
+            return out.position() - start;
+        } finally {
+            wipe(plain);
+        }
+    }
+
+    /**
+     * Decrypt a password to a char array the caller can wipe once done with it.
+     */
+    public static char[] decryptToChars(EncryptedData encryptedData, SecretKey key) throws Exception {
+        // UTF-8 never decodes to more chars than it has bytes
+        CharBuffer chars = CharBuffer.allocate(encryptedData.getEncryptedData().length);
+        int length = decryptInto(encryptedData, key, chars);
+        char[] result = Arrays.copyOf(chars.array(), length);
+        Arrays.fill(chars.array(), '\0');
+        return result;
+    }
+
+    /**
+     * Decrypt with one key and encrypt with another without the plaintext ever leaving
+     * per-thread scratch space (used when rotating the vault key). The result carries the
+     * fingerprint under the new key.
+     */
+    public static EncryptedData reEncrypt(EncryptedData encryptedData, SecretKey oldKey, SecretKey newKey)
+            throws Exception {
+        ByteBuffer plain = decryptToScratch(encryptedData, oldKey);
+        try {
+            return sealPassword(plain, newKey);
+        } finally {
+            wipe(plain);
+        }
+    }
+
+    /**
+     * Fingerprint of an encrypted entry password, decrypted in per-thread scratch space.
+     * Only needed for entries that were stored without one.
+     */
+    public static byte[] fingerprint(EncryptedData encryptedData, SecretKey vaultKey) throws Exception {
+        ByteBuffer plain = decryptToScratch(encryptedData, vaultKey);
+        try {
+            return fingerprint(plain, vaultKey);
+        } finally {
+            wipe(plain);
+        }
+    }
+
+    /**
+     * Keyed fingerprint of a password's UTF-8 bytes: HMAC-SHA256 under a key derived from
+     * the vault key with HKDF, truncated. Equal passwords in one vault have equal
+     * fingerprints, so reuse can be found by comparing them, but without the vault key
+     * they can't be checked against guesses. Reads the buffer's remaining bytes without
+     * consuming them.
+     */
+    public static byte[] fingerprint(ByteBuffer plaintext, SecretKey vaultKey) throws GeneralSecurityException {
+        Mac mac = fingerprintMac(vaultKey);
+        mac.update(plaintext.duplicate());
+        return Arrays.copyOf(mac.doFinal(), FINGERPRINT_LENGTH);
+    }
+
+    private static Mac fingerprintMac(SecretKey vaultKey) throws GeneralSecurityException {
+        KeyCache cache = KEY_CACHE.get();
+        Fingerprinter fingerprinter = cache.fingerprinter;
+        if (fingerprinter == null || fingerprinter.vaultKey.get() != vaultKey) {
+            byte[] vaultKeyBytes = vaultKey.getEncoded();
+            byte[] macKey = hkdf(vaultKeyBytes, null, FINGERPRINT_INFO, KEY_LENGTH / 8);
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(macKey, HMAC_ALGORITHM));
+            Arrays.fill(macKey, (byte) 0);
+            Arrays.fill(vaultKeyBytes, (byte) 0);
+            // The vault key is only held weakly; the MAC itself holds the derived key
+            // until forgetKeys drops it
+            fingerprinter = new Fingerprinter(vaultKey, mac);
+            cache.fingerprinter = fingerprinter;
+        }
+        return fingerprinter.mac;
+    }
+
+    /**
+     * Drop the cached instances that hold key material on every thread, e.g. on logout.
+     * The ciphers keep the last key they were initialised with, usually the vault key, and
+     * the fingerprint MACs hold a key derived from it, which would let anyone with the
+     * stored fingerprints test guesses against them. A thread that is using one right now
+     * finishes with it and builds a new one next time.
+     */
+    public static void forgetKeys() {
+        synchronized (KEY_CACHES) {
+            for (KeyCache cache : KEY_CACHES) {
+                cache.cbc = null;
+                cache.gcm = null;
+                cache.fingerprinter = null;
+            }
+        }
+    }
+
+    private static ByteBuffer decryptToScratch(EncryptedData encryptedData, SecretKey key) throws Exception {
+        ByteBuffer scratch = scratch(encryptedData.getEncryptedData().length);
+        decryptInto(encryptedData, key, scratch);
+        return scratch.flip();
+    }
+
+    private static ByteBuffer encodeToScratch(CharBuffer chars) throws CharacterCodingException {
+        CharsetEncoder encoder = UTF8_ENCODER.get().reset();
+        ByteBuffer scratch = scratch((int) Math.ceil(chars.remaining() * (double) encoder.maxBytesPerChar()));
+        CoderResult result = encoder.encode(chars, scratch, true);
+        if (!result.isUnderflow()) {
+            result.throwException();
+        }
+        encoder.flush(scratch);
+        return scratch.flip();
+    }
+
+    private static ByteBuffer scratch(int capacity) {
+        ByteBuffer scratch = SCRATCH.get();
+        if (scratch.capacity() < capacity) {
+            scratch = ByteBuffer.allocate(Math.max(capacity, scratch.capacity() * 2));
+            SCRATCH.set(scratch);
+        }
+        return scratch.clear();
+    }
+
+    private static void wipe(ByteBuffer buffer) {
+        Arrays.fill(buffer.array(), (byte) 0);
+        buffer.clear();
     }
 
     public static byte[] generateSalt() {
         byte[] salt = new byte[SALT_LENGTH];
-        new SecureRandom().nextBytes(salt);
+        RANDOM.get().nextBytes(salt);
         return salt;
     }
 
     public static String hashPassword(String password) throws NoSuchAlgorithmException {
         java.security.MessageDigest digest = java.security.MessageDigest.getInstance("SHA-256");
-        byte[] hash = digest.digest(password.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        byte[] hash = digest.digest(password.getBytes(StandardCharsets.UTF_8));
         return Base64.getEncoder().encodeToString(hash);
     }
 
+    /**
+     * HKDF-SHA256 (RFC 5869): extract a pseudorandom key from the input keying material,
+     * then expand it into length bytes bound to the given context label. Used to split a
+     * single password-derived secret into independent keys.
+     */
+    public static byte[] hkdf(byte[] inputKey, byte[] salt, String info, int length)
+            throws NoSuchAlgorithmException, InvalidKeyException {
+        Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+        mac.init(new SecretKeySpec(salt == null || salt.length == 0 ? new byte[32] : salt, HMAC_ALGORITHM));
+        byte[] prk = mac.doFinal(inputKey);
+
+        mac.init(new SecretKeySpec(prk, HMAC_ALGORITHM));
+        byte[] infoBytes = info.getBytes(StandardCharsets.UTF_8);
+        byte[] okm = new byte[length];
+        byte[] block = new byte[0];
+        for (int offset = 0, counter = 1; offset < length; counter++) {
+            mac.update(block);
+            mac.update(infoBytes);
+            mac.update((byte) counter);
+            block = mac.doFinal();
+            int n = Math.min(block.length, length - offset);
+            System.arraycopy(block, 0, okm, offset, n);
+            offset += n;
+        }
+        Arrays.fill(prk, (byte) 0);
+        return okm;
+    }
+
+    /**
+     * Wrap raw key bytes as an AES key.
+     */
+    public static SecretKey aesKey(byte[] keyBytes) {
+        return new SecretKeySpec(keyBytes, KEY_ALGORITHM);
+    }
+
+    /**
+     * Exercise every primitive an unlock and the first reveal use: load the providers,
+     * seed the random generator and let the JIT compile the HMAC loop PBKDF2 spends its
+     * time in. Works on throwaway keys; meant to run in the background before login.
+     */
+    public static void warmUp() throws Exception {
+        byte[] salt = generateSalt();
+        byte[] master = pbkdf2("warm-up".toCharArray(), salt, WARM_UP_ITERATIONS, KEY_LENGTH);
+        SecretKey key = aesKey(hkdf(master, salt, "warm-up", KEY_LENGTH / 8));
+        decryptToChars(encryptData("warm-up", key), key);
+    }
+
+    public static int getKdfIterations() {
+        return ITERATIONS;
+    }
+
     public static byte[] pbkdf2(char[] password, byte[] salt, int iterations, int keyLength)
             throws NoSuchAlgorithmException, InvalidKeySpecException {
-        SecretKeyFactory factory = SecretKeyFactory.getInstance(PBKDF_ALGORITHM);
         KeySpec spec = new PBEKeySpec(password, salt, iterations, keyLength);
-        SecretKey tmp = factory.generateSecret(spec);
+        SecretKey tmp = KEY_FACTORY.get().generateSecret(spec);
         return tmp.getEncoded();
     }
-}
\ No newline at end of file
+}
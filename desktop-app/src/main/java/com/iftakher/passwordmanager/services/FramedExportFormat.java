@@ -0,0 +1,522 @@
+package com.iftakher.passwordmanager.services;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.iftakher.passwordmanager.models.EncryptedPasswordDto;
+import com.iftakher.passwordmanager.models.ExportData;
+import com.iftakher.passwordmanager.models.PasswordEntry;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Framed export container: a sequence of independently sealed AES-GCM frames
+ * followed by an index of frame offsets.
+ *
+ * <pre>
+ * header   magic "PPHX" | int version | int entriesPerFrame | int reserved | 16 byte salt
+ * frame*   int length | 12 byte nonce | ciphertext + 16 byte tag
+ * index    long offset of each frame
+ * trailer  long indexOffset | int frameCount | magic "PPHX"
+ * </pre>
+ *
+ * Frame 0 holds the export metadata, every later frame a JSON array of entries.
+ * Each frame is authenticated together with the header, its own index and whether
+ * it is the last frame, so frames cannot be reordered, swapped between files or
+ * dropped from the end without decryption failing. Because frames are independent,
+ * they are sealed and opened across all cores, and a single frame can be read by
+ * seeking through the index.
+ *
+ * Frames are sealed under an export key derived from the vault key with HKDF and the
+ * file's salt, never the vault key itself, which also encrypts every entry. Version 2
+ * files, written before the salt was added, have a 16 byte header and use the vault key;
+ * they can still be read.
+ */
+public class FramedExportFormat {
+    public static final int VERSION = 3;
+
+    static final int HEADER_SIZE = 32;
+    static final int TRAILER_SIZE = 16;
+    private static final int UNSALTED_VERSION = 2;
+    private static final int UNSALTED_HEADER_SIZE = 16;
+    private static final int SALT_LENGTH = 16;
+    private static final String EXPORT_KEY_INFO = "passhelper export frame key v3";
+    private static final byte[] MAGIC = {'P', 'P', 'H', 'X'};
+    private static final int NONCE_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+    private static final int ENTRIES_PER_FRAME = 256;
+    private static final int MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_IN_FLIGHT = Runtime.getRuntime().availableProcessors() * 2;
+
+    private static final Gson gson = new Gson();
+    private static final Type DTO_LIST = new TypeToken<List<EncryptedPasswordDto>>() {}.getType();
+
+    /**
+     * Write an export. Entries are grouped into frames on the calling thread while
+     * up to two frames per core are serialised and sealed in parallel; frames are
+     * written in order as they complete, so memory stays bounded.
+     *
+     * The file is written next to the target under a temporary name and moved over it
+     * only once complete, so a failed export never destroys an existing backup.
+     */
+    static void write(ImportExportService.EntrySource source, Path path, SecretKey key,
+                      String deviceName) throws Exception {
+        Path target = path.toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            writeFile(source, temp, key, deviceName);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void writeFile(ImportExportService.EntrySource source, Path path, SecretKey key,
+                                  String deviceName) throws Exception {
+        byte[] salt = new byte[SALT_LENGTH];
+        EncryptionService.nextBytes(salt);
+        byte[] header = header(ENTRIES_PER_FRAME, salt);
+        SecretKey frameKey = exportKey(key, salt);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE);
+             DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE))) {
+            FrameWriter writer = new FrameWriter(out, header, frameKey);
+            out.write(header);
+            writer.position = HEADER_SIZE;
+
+            ExportData metadata = new ExportData(VERSION, System.currentTimeMillis(), deviceName, null);
+            byte[] metadataJson = gson.toJson(metadata).getBytes(StandardCharsets.UTF_8);
+
+            // The writer holds one frame back so the final frame can be sealed with the "last" flag
+            List<EncryptedPasswordDto> chunk = new ArrayList<>(ENTRIES_PER_FRAME);
+            writer.submit(() -> metadataJson, false);
+
+            source.forEach(entry -> {
+                chunk.add(ImportExportService.toDto(entry));
+                if (chunk.size() == ENTRIES_PER_FRAME) {
+                    List<EncryptedPasswordDto> full = new ArrayList<>(chunk);
+                    chunk.clear();
+                    writer.submitPending(full);
+                }
+            });
+            if (!chunk.isEmpty()) {
+                writer.submitPending(new ArrayList<>(chunk));
+            }
+            writer.finish();
+
+            // Index and trailer
+            long indexOffset = writer.position;
+            for (long offset : writer.offsets) {
+                out.writeLong(offset);
+            }
+            out.writeLong(indexOffset);
+            out.writeInt(writer.offsets.size());
+            out.write(MAGIC);
+            out.flush();
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Cheap format check: header and trailer magic plus a plausible size, without reading frames.
+     */
+    static boolean isFramedFile(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < UNSALTED_HEADER_SIZE + TRAILER_SIZE) {
+                return false;
+            }
+            ByteBuffer head = readFully(channel, 0, 8);
+            ByteBuffer tail = readFully(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+            return hasMagic(head, 0) && headerSize(head.getInt(4)) > 0 && hasMagic(tail, 12);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Number of entry frames in an export (the metadata frame is not counted).
+     */
+    public static int getEntryFrameCount(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return readTrailer(channel).frameCount - 1;
+        }
+    }
+
+    /**
+     * Seek to and decrypt a single entry frame (0-based, metadata excluded) via the index.
+     */
+    public static List<PasswordEntry> readFrame(Path path, SecretKey key, int entryFrame) throws Exception {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Trailer trailer = readTrailer(channel);
+            int frameIndex = entryFrame + 1;
+            if (entryFrame < 0 || frameIndex >= trailer.frameCount) {
+                throw new IndexOutOfBoundsException("Frame " + entryFrame + " does not exist");
+            }
+            byte[] header = readHeader(channel);
+
+            long offset = readFully(channel, trailer.indexOffset + frameIndex * 8L, 8).getLong();
+            int length = readFully(channel, offset, 4).getInt();
+            checkFrameLength(length);
+            byte[] frame = new byte[length];
+            readFully(channel, offset + 4, length).get(frame);
+
+            byte[] json = open(frame, frameKey(header, key), header, frameIndex, frameIndex == trailer.frameCount - 1);
+            return toEntries(json, key, (long) entryFrame * entriesPerFrame(header));
+        }
+    }
+
+    /**
+     * Sequential reader that decrypts up to two frames per core ahead of the consumer.
+     */
+    static class Reader extends ImportExportService.ImportReader {
+        private final FileChannel channel;
+        private final DataInputStream in;
+        private final byte[] header;
+        private final int frameCount;
+        private final SecretKey key;
+        private final SecretKey frameKey;
+        private final Deque<Future<List<PasswordEntry>>> inFlight = new ArrayDeque<>();
+        private final int version;
+        private int nextFrame;
+        private long position;
+        private Iterator<PasswordEntry> current = Collections.emptyIterator();
+
+        Reader(Path path, SecretKey key) throws Exception {
+            super(path);
+            this.key = key;
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                Trailer trailer = readTrailer(channel);
+                this.frameCount = trailer.frameCount;
+                this.header = readHeader(channel);
+                this.frameKey = frameKey(header, key);
+                channel.position(header.length);
+                this.in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), BUFFER_SIZE));
+                this.position = header.length;
+
+                // The metadata frame is small; read it up front to validate key and version
+                byte[] metadataJson = open(readNextFrame(), frameKey, header, 0, frameCount == 1);
+                nextFrame = 1;
+                ExportData metadata = gson.fromJson(new String(metadataJson, StandardCharsets.UTF_8), ExportData.class);
+                this.version = metadata.getVersion();
+            } catch (Exception e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public int getVersion() { return version; }
+
+        @Override
+        public long getBytesRead() { return position; }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (!current.hasNext()) {
+                    while (inFlight.size() < MAX_IN_FLIGHT && nextFrame < frameCount) {
+                        byte[] frame = readNextFrame();
+                        int index = nextFrame++;
+                        boolean last = index == frameCount - 1;
+                        inFlight.add(CompletableFuture.supplyAsync(() -> {
+                            byte[] json;
+                            try {
+                                json = open(frame, frameKey, header, index, last);
+                            } catch (Exception e) {
+                                throw new IllegalStateException("Export frame " + index + " is corrupt or the key is wrong", e);
+                            }
+                            return toEntries(json, key, (long) (index - 1) * entriesPerFrame(header));
+                        }));
+                    }
+                    if (inFlight.isEmpty()) {
+                        return false;
+                    }
+                    current = inFlight.poll().get().iterator();
+                }
+                return true;
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Import interrupted", e);
+            } catch (IOException e) {
+                throw new java.io.UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public PasswordEntry next() {
+            if (!hasNext()) {
+                throw new java.util.NoSuchElementException();
+            }
+            return current.next();
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (Future<?> future : inFlight) {
+                future.cancel(true);
+            }
+            inFlight.clear();
+            in.close();
+        }
+
+        private byte[] readNextFrame() throws IOException {
+            int length = in.readInt();
+            checkFrameLength(length);
+            byte[] frame = new byte[length];
+            in.readFully(frame);
+            position += 4 + length;
+            return frame;
+        }
+    }
+
+    /**
+     * Serialises and seals frames on the common pool and writes them in submission order.
+     */
+    private static class FrameWriter {
+        private final DataOutputStream out;
+        private final byte[] header;
+        private final SecretKey key;
+        private final Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+        private final List<Long> offsets = new ArrayList<>();
+        private List<EncryptedPasswordDto> pending;
+        private int nextIndex;
+        private long position;
+
+        FrameWriter(DataOutputStream out, byte[] header, SecretKey key) {
+            this.out = out;
+            this.header = header;
+            this.key = key;
+        }
+
+        /** Queue an entry frame; the previous one is sealed now that it is known not to be last. */
+        void submitPending(List<EncryptedPasswordDto> chunk) throws Exception {
+            if (pending != null) {
+                List<EncryptedPasswordDto> previous = pending;
+                submit(() -> gson.toJson(previous, DTO_LIST).getBytes(StandardCharsets.UTF_8), false);
+            }
+            pending = chunk;
+        }
+
+        void finish() throws Exception {
+            List<EncryptedPasswordDto> last = pending == null ? Collections.emptyList() : pending;
+            pending = null;
+            if (nextIndex == 1 && last.isEmpty()) {
+                // Empty vault: still write one (empty) entry frame so readers see a sealed last frame
+                submit(() -> "[]".getBytes(StandardCharsets.UTF_8), true);
+            } else if (!last.isEmpty()) {
+                submit(() -> gson.toJson(last, DTO_LIST).getBytes(StandardCharsets.UTF_8), true);
+            }
+            while (!inFlight.isEmpty()) {
+                writeFrame(inFlight.poll());
+            }
+        }
+
+        void submit(PlaintextSupplier plaintext, boolean last) throws Exception {
+            int index = nextIndex++;
+            inFlight.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return seal(plaintext.get(), key, header, index, last);
+                } catch (Exception e) {
+                    throw new IllegalStateException("Failed to seal export frame " + index, e);
+                }
+            }));
+            if (inFlight.size() >= MAX_IN_FLIGHT) {
+                writeFrame(inFlight.poll());
+            }
+        }
+
+        private void writeFrame(Future<byte[]> future) throws Exception {
+            byte[] frame;
+            try {
+                frame = future.get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
+            offsets.add(position);
+            out.writeInt(frame.length);
+            out.write(frame);
+            position += 4 + frame.length;
+        }
+    }
+
+    @FunctionalInterface
+    private interface PlaintextSupplier {
+        byte[] get() throws Exception;
+    }
+
+    private static class Trailer {
+        final long indexOffset;
+        final int frameCount;
+
+        Trailer(long indexOffset, int frameCount) {
+            this.indexOffset = indexOffset;
+            this.frameCount = frameCount;
+        }
+    }
+
+    private static byte[] header(int entriesPerFrame, byte[] salt) {
+        return ByteBuffer.allocate(HEADER_SIZE)
+            .put(MAGIC)
+            .putInt(VERSION)
+            .putInt(entriesPerFrame)
+            .putInt(0)
+            .put(salt)
+            .array();
+    }
+
+    /** Header length for a format version, or 0 if the version is unknown. */
+    private static int headerSize(int version) {
+        return version == VERSION ? HEADER_SIZE : version == UNSALTED_VERSION ? UNSALTED_HEADER_SIZE : 0;
+    }
+
+    /** Entries in every frame but the last, as recorded in the header. */
+    private static int entriesPerFrame(byte[] header) {
+        return ByteBuffer.wrap(header).getInt(8);
+    }
+
+    private static byte[] readHeader(FileChannel channel) throws IOException {
+        ByteBuffer head = readFully(channel, 0, 8);
+        int size = headerSize(head.getInt(4));
+        if (!hasMagic(head, 0) || size == 0) {
+            throw new IOException("Not a framed export or unsupported version");
+        }
+        byte[] header = new byte[size];
+        readFully(channel, 0, size).get(header);
+        return header;
+    }
+
+    /** Key the frames of a file were sealed under. */
+    private static SecretKey frameKey(byte[] header, SecretKey vaultKey) throws Exception {
+        if (header.length == UNSALTED_HEADER_SIZE) {
+            return vaultKey;
+        }
+        return exportKey(vaultKey, Arrays.copyOfRange(header, UNSALTED_HEADER_SIZE, UNSALTED_HEADER_SIZE + SALT_LENGTH));
+    }
+
+    private static SecretKey exportKey(SecretKey vaultKey, byte[] salt) throws Exception {
+        byte[] vaultKeyBytes = vaultKey.getEncoded();
+        try {
+            return EncryptionService.aesKey(
+                EncryptionService.hkdf(vaultKeyBytes, salt, EXPORT_KEY_INFO, vaultKeyBytes.length));
+        } finally {
+            Arrays.fill(vaultKeyBytes, (byte) 0);
+        }
+    }
+
+    private static byte[] seal(byte[] plaintext, SecretKey key, byte[] header, int index, boolean last)
+            throws Exception {
+        byte[] nonce = new byte[NONCE_LENGTH];
+        EncryptionService.nextBytes(nonce);
+        Cipher cipher = EncryptionService.gcmCipher();
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, nonce));
+        cipher.updateAAD(aad(header, index, last));
+
+        byte[] frame = new byte[NONCE_LENGTH + cipher.getOutputSize(plaintext.length)];
+        System.arraycopy(nonce, 0, frame, 0, NONCE_LENGTH);
+        cipher.doFinal(plaintext, 0, plaintext.length, frame, NONCE_LENGTH);
+        return frame;
+    }
+
+    private static byte[] open(byte[] frame, SecretKey key, byte[] header, int index, boolean last)
+            throws Exception {
+        if (frame.length < NONCE_LENGTH + TAG_BITS / 8) {
+            throw new IOException("Export frame " + index + " is truncated");
+        }
+        Cipher cipher = EncryptionService.gcmCipher();
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, frame, 0, NONCE_LENGTH));
+        cipher.updateAAD(aad(header, index, last));
+        return cipher.doFinal(frame, NONCE_LENGTH, frame.length - NONCE_LENGTH);
+    }
+
+    private static byte[] aad(byte[] header, int index, boolean last) {
+        return ByteBuffer.allocate(header.length + 5)
+            .put(header)
+            .putInt(index)
+            .put((byte) (last ? 1 : 0))
+            .array();
+    }
+
+    /** Entries of one frame, whose first entry is the given row of the export. */
+    private static List<PasswordEntry> toEntries(byte[] json, SecretKey key, long firstRow) {
+        List<EncryptedPasswordDto> dtos = gson.fromJson(new String(json, StandardCharsets.UTF_8), DTO_LIST);
+        List<PasswordEntry> entries = new ArrayList<>(dtos.size());
+        for (EncryptedPasswordDto dto : dtos) {
+            entries.add(ImportExportService.fromDto(dto, key, firstRow + entries.size()));
+        }
+        return entries;
+    }
+
+    private static Trailer readTrailer(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < UNSALTED_HEADER_SIZE + TRAILER_SIZE) {
+            throw new IOException("File is too short to be a framed export");
+        }
+        ByteBuffer tail = readFully(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+        long indexOffset = tail.getLong(0);
+        int frameCount = tail.getInt(8);
+        if (!hasMagic(tail, 12) || frameCount < 1
+                || indexOffset < UNSALTED_HEADER_SIZE || indexOffset + frameCount * 8L != size - TRAILER_SIZE) {
+            throw new IOException("Export index is damaged");
+        }
+        return new Trailer(indexOffset, frameCount);
+    }
+
+    private static void checkFrameLength(int length) throws IOException {
+        if (length <= 0 || length > MAX_FRAME_LENGTH) {
+            throw new IOException("Export frame has invalid length " + length);
+        }
+    }
+
+    private static boolean hasMagic(ByteBuffer buffer, int offset) {
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(offset, magic);
+        return Arrays.equals(magic, MAGIC);
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of export file");
+            }
+        }
+        return buffer.flip();
+    }
+}
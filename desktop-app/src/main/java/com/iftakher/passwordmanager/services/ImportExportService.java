@@ -4,118 +4,378 @@ package com.iftakher.passwordmanager.services;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
 import com.iftakher.passwordmanager.models.EncryptedPasswordDto;
-import com.iftakher.passwordmanager.models.ExportData;
 import com.iftakher.passwordmanager.models.PasswordEntry;
 
+import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
 import javax.crypto.SecretKey;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.NoSuchElementException;
 
 public class ImportExportService {
     private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
-    private static final int CURRENT_VERSION = 1;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int IV_LENGTH = 16;
+    private static final int BLOCK_SIZE = 16;
+
+    /**
+     * Source of entries for a streaming export, e.g. a database cursor.
+     */
+    @FunctionalInterface
+    public interface EntrySource {
+        void forEach(DatabaseService.EntryVisitor visitor) throws Exception;
+    }
 
     public static void exportToFile(List<PasswordEntry> passwords, String filePath, 
                                   SecretKey encryptionKey, String deviceName) throws Exception {
-        // Convert passwords to DTOs
-        List<EncryptedPasswordDto> passwordDtos = passwords.stream()
-            .map(password -> {
-                try {
-                    // The password is already encrypted, we just need to encode for JSON
-                    String encryptedData = Base64.getEncoder().encodeToString(password.getEncryptedPassword());
-                    String iv = Base64.getEncoder().encodeToString(password.getEncryptionIv());
-                    
-                    return new EncryptedPasswordDto(
-                        String.valueOf(password.getId()),
-                        password.getTitle(),
-                        password.getWebsite(),
-                        password.getUsername(),
-                        encryptedData,
-                        iv,
-                        password.getCategory(),
-                        password.getNotes(),
-                        password.getUpdatedAt()
-                    );
-                } catch (Exception e) {
-                    throw new RuntimeException("Error converting password to DTO", e);
-                }
-            })
-            .collect(Collectors.toList());
-
-        // Create export data
-        ExportData exportData = new ExportData(
-            CURRENT_VERSION,
-            System.currentTimeMillis(),
-            deviceName,
-            passwordDtos
-        );
+        exportToFile(visitor -> {
+            for (PasswordEntry password : passwords) {
+                visitor.visit(password);
+            }
+        }, filePath, encryptionKey, deviceName);
+    }
 
-        // Convert to JSON
-        String json = gson.toJson(exportData);
+    /**
+     * Export the whole vault straight from a database cursor.
+     */
+    public static void exportToFile(DatabaseService databaseService, String filePath,
+                                  SecretKey encryptionKey, String deviceName) throws Exception {
+        exportToFile(databaseService::forEachPassword, filePath, encryptionKey, deviceName);
+    }
 
-        // Encrypt the JSON data
-        EncryptionService.EncryptedData encrypted = EncryptionService.encryptData(json, encryptionKey);
+    /**
+     * Write a framed export: entries are read from the source one at a time and sealed in
+     * independent AES-GCM frames across all cores (see {@link FramedExportFormat}).
+     */
+    public static void exportToFile(EntrySource source, String filePath,
+                                  SecretKey encryptionKey, String deviceName) throws Exception {
+        FramedExportFormat.write(source, Paths.get(filePath), encryptionKey, deviceName);
+    }
 
-        // Combine IV and encrypted data
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        outputStream.write(encrypted.getIv());
-        outputStream.write(encrypted.getEncryptedData());
+    static EncryptedPasswordDto toDto(PasswordEntry password) {
+        // The password is already encrypted, we just need to encode for JSON
+        String encryptedData = Base64.getEncoder().encodeToString(password.getEncryptedPassword());
+        String iv = Base64.getEncoder().encodeToString(password.getEncryptionIv());
 
-        // Write to file
-        Files.write(Paths.get(filePath), outputStream.toByteArray());
+        return new EncryptedPasswordDto(
+            String.valueOf(password.getId()),
+            password.getTitle(),
+            password.getWebsite(),
+            password.getUsername(),
+            encryptedData,
+            iv,
+            password.getCategory(),
+            password.getNotes(),
+            password.getUpdatedAt()
+        );
     }
 
     public static List<PasswordEntry> importFromFile(String filePath, SecretKey encryptionKey) throws Exception {
-        // Read file
-        byte[] fileData = Files.readAllBytes(Paths.get(filePath));
-
-        // Separate IV and encrypted data
-        byte[] iv = new byte[16];
-        byte[] encryptedData = new byte[fileData.length - 16];
-        
-        System.arraycopy(fileData, 0, iv, 0, 16);
-        System.arraycopy(fileData, 16, encryptedData, 0, encryptedData.length);
-
-        // Decrypt data
-        EncryptionService.EncryptedData encrypted = new EncryptionService.EncryptedData(encryptedData, iv);
-        String json = EncryptionService.decryptData(encrypted, encryptionKey);
-
-        // Parse JSON
-        ExportData exportData = gson.fromJson(json, ExportData.class);
-
-        // Convert DTOs back to PasswordEntry objects
-        return exportData.getPasswords().stream()
-            .map(dto -> {
-                byte[] encryptedPassword = Base64.getDecoder().decode(dto.getEncryptedData());
-                byte[] encryptionIv = Base64.getDecoder().decode(dto.getIv());
-                
-                return new PasswordEntry(
-                    Long.parseLong(dto.getId()),
-                    dto.getTitle(),
-                    dto.getWebsite(),
-                    dto.getUsername(),
-                    encryptedPassword,
-                    encryptionIv,
-                    dto.getCategory(),
-                    dto.getNotes(),
-                    System.currentTimeMillis(), // Use current time for new entries
-                    dto.getLastModified()
-                );
-            })
-            .collect(Collectors.toList());
+        List<PasswordEntry> passwords = new ArrayList<>();
+        importFromFile(filePath, encryptionKey, passwords::add);
+        return passwords;
+    }
+
+    /**
+     * Decrypt and parse an export incrementally, handing each entry to the visitor
+     * as soon as it is read. Returns the number of entries imported.
+     */
+    public static int importFromFile(String filePath, SecretKey encryptionKey,
+                                     DatabaseService.EntryVisitor visitor) throws Exception {
+        int count = 0;
+        try (ImportReader reader = openImport(filePath, encryptionKey)) {
+            for (PasswordEntry password : reader) {
+                visitor.visit(password);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Open an export for streaming. The returned reader is a single-use Iterable, so it can
+     * be handed directly to {@link DatabaseService#addPasswords(Iterable, int, long, ProgressListener)}.
+     * Both the framed format and the original single-blob v1 format are accepted.
+     */
+    public static ImportReader openImport(String filePath, SecretKey encryptionKey) throws Exception {
+        return openImport(filePath, encryptionKey, null);
+    }
+
+    /**
+     * Open an export that may have been written before the vault was migrated to
+     * single-derivation unlock. Such a v1 file is encrypted under the legacy key (see
+     * {@link UnlockService#legacyExportKey}); its entries are re-encrypted under the
+     * vault key as they are read. With a null legacy key this is {@link #openImport(String, SecretKey)}.
+     */
+    public static ImportReader openImport(String filePath, SecretKey encryptionKey, SecretKey legacyKey)
+            throws Exception {
+        Path path = Paths.get(filePath);
+        if (FramedExportFormat.isFramedFile(path)) {
+            return new FramedExportFormat.Reader(path, encryptionKey);
+        }
+        return new LegacyImportReader(path, legacyKey != null ? legacyKey : encryptionKey, encryptionKey);
+    }
+
+    /**
+     * Whether the file is a v1 export that does not decrypt under the vault key, e.g. one
+     * made before the vault was migrated. Only the start of the file is read.
+     */
+    public static boolean needsLegacyKey(String filePath, SecretKey encryptionKey) throws IOException {
+        Path path = Paths.get(filePath);
+        if (FramedExportFormat.isFramedFile(path)) {
+            return false;
+        }
+        ImportReader reader;
+        try {
+            reader = new LegacyImportReader(path, encryptionKey, encryptionKey);
+        } catch (Exception e) {
+            return true;
+        }
+        reader.close();
+        return false;
+    }
+
+    /**
+     * Decrypt a single frame of a framed export without reading the rest of the file.
+     */
+    public static List<PasswordEntry> readFrame(String filePath, SecretKey encryptionKey, int frame) throws Exception {
+        return FramedExportFormat.readFrame(Paths.get(filePath), encryptionKey, frame);
     }
 
     public static boolean isExportFile(String filePath) {
         try {
-            byte[] fileData = Files.readAllBytes(Paths.get(filePath));
-            return fileData.length > 16; // Must have IV + some data
+            Path path = Paths.get(filePath);
+            if (!Files.isRegularFile(path)) {
+                return false;
+            }
+            if (FramedExportFormat.isFramedFile(path)) {
+                return true;
+            }
+            // v1: IV header plus at least one AES block, and CBC output is whole blocks
+            long payload = Files.size(path) - IV_LENGTH;
+            return payload >= BLOCK_SIZE && payload % BLOCK_SIZE == 0;
         } catch (Exception e) {
             return false;
         }
     }
+
+    /**
+     * Entry for an exported password. Exports don't carry fingerprints, so the password is
+     * decrypted once in scratch space to fingerprint it under the importing vault's key.
+     * A password that doesn't decrypt fails the import rather than being stored unreadable;
+     * the error names the entry by its position in the export.
+     */
+    static PasswordEntry fromDto(EncryptedPasswordDto dto, SecretKey encryptionKey, long row) {
+        return fromDto(dto, encryptionKey, encryptionKey, row);
+    }
+
+    /**
+     * Entry for an exported password encrypted under sourceKey, re-encrypted under the
+     * vault key when the two differ.
+     */
+    static PasswordEntry fromDto(EncryptedPasswordDto dto, SecretKey sourceKey, SecretKey encryptionKey, long row) {
+        byte[] encryptedPassword = Base64.getDecoder().decode(dto.getEncryptedData());
+        byte[] encryptionIv = Base64.getDecoder().decode(dto.getIv());
+        EncryptionService.EncryptedData sealed = null;
+        if (sourceKey != encryptionKey) {
+            try {
+                sealed = EncryptionService.reEncrypt(
+                    new EncryptionService.EncryptedData(encryptedPassword, encryptionIv), sourceKey, encryptionKey);
+            } catch (Exception e) {
+                throw new IllegalStateException("Password of export entry " + row + " does not decrypt", e);
+            }
+            encryptedPassword = sealed.getEncryptedData();
+            encryptionIv = sealed.getIv();
+        }
+
+        PasswordEntry entry = new PasswordEntry(
+            Long.parseLong(dto.getId()),
+            dto.getTitle(),
+            dto.getWebsite(),
+            dto.getUsername(),
+            encryptedPassword,
+            encryptionIv,
+            dto.getCategory(),
+            dto.getNotes(),
+            System.currentTimeMillis(), // Use current time for new entries
+            dto.getLastModified()
+        );
+        if (sealed != null) {
+            entry.setPasswordFingerprint(sealed.getFingerprint());
+            return entry;
+        }
+        try {
+            entry.setPasswordFingerprint(EncryptionService.fingerprint(
+                new EncryptionService.EncryptedData(encryptedPassword, encryptionIv), encryptionKey));
+        } catch (Exception e) {
+            throw new IllegalStateException("Password of export entry " + row + " does not decrypt", e);
+        }
+        return entry;
+    }
+
+    /**
+     * Streaming reader over an export file that yields one entry at a time. Parse and
+     * decryption errors surface as unchecked exceptions from the iterator.
+     */
+    public abstract static class ImportReader implements Iterable<PasswordEntry>, Iterator<PasswordEntry>, AutoCloseable {
+        private final long fileSize;
+
+        protected ImportReader(Path path) throws IOException {
+            this.fileSize = Files.size(path);
+        }
+
+        /** Format version from the export header. */
+        public abstract int getVersion();
+
+        /** Bytes of the file consumed so far, for progress reporting. */
+        public abstract long getBytesRead();
+
+        public long getFileSize() { return fileSize; }
+
+        @Override
+        public Iterator<PasswordEntry> iterator() {
+            return this;
+        }
+
+        @Override
+        public abstract void close() throws IOException;
+    }
+
+    /**
+     * Reader for v1 files: reads the IV header, then decrypts through a CipherInputStream
+     * into a JsonReader. Only the entry being parsed is held in memory. The file is read
+     * under sourceKey and entries are stored under encryptionKey.
+     */
+    private static class LegacyImportReader extends ImportReader {
+        private final CountingInputStream fileIn;
+        private final JsonReader reader;
+        private final SecretKey sourceKey;
+        private final SecretKey encryptionKey;
+        private int version;
+        private boolean inPasswords;
+        private boolean finished;
+        private long row;
+
+        private LegacyImportReader(Path path, SecretKey sourceKey, SecretKey encryptionKey) throws Exception {
+            super(path);
+            this.sourceKey = sourceKey;
+            this.encryptionKey = encryptionKey;
+            this.fileIn = new CountingInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE));
+            try {
+                byte[] iv = fileIn.readNBytes(IV_LENGTH);
+                if (iv.length != IV_LENGTH) {
+                    throw new IOException("File is too short to be an export");
+                }
+                Cipher cipher = EncryptionService.initCipher(Cipher.DECRYPT_MODE, sourceKey, iv);
+                this.reader = new JsonReader(new InputStreamReader(
+                    new CipherInputStream(fileIn, cipher), StandardCharsets.UTF_8));
+                advanceToPasswords();
+            } catch (Exception e) {
+                fileIn.close();
+                throw e;
+            }
+        }
+
+        @Override
+        public int getVersion() { return version; }
+
+        @Override
+        public long getBytesRead() { return fileIn.count; }
+
+        @Override
+        public boolean hasNext() {
+            if (finished) {
+                return false;
+            }
+            try {
+                if (inPasswords && reader.hasNext()) {
+                    return true;
+                }
+                finish();
+                return false;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public PasswordEntry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            EncryptedPasswordDto dto = gson.fromJson(reader, EncryptedPasswordDto.class);
+            return fromDto(dto, sourceKey, encryptionKey, row++);
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+
+        private void advanceToPasswords() throws IOException {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("passwords".equals(name)) {
+                    reader.beginArray();
+                    inPasswords = true;
+                    return;
+                } else if ("version".equals(name)) {
+                    version = reader.nextInt();
+                } else {
+                    reader.skipValue();
+                }
+            }
+        }
+
+        private void finish() throws IOException {
+            finished = true;
+            if (inPasswords) {
+                reader.endArray();
+                inPasswords = false;
+            }
+            // Consume the rest of the document so decryption reaches the final block
+            while (reader.hasNext()) {
+                reader.nextName();
+                reader.skipValue();
+            }
+            reader.endObject();
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.iftakher.passwordmanager.services;
+
+import com.iftakher.passwordmanager.models.PasswordCiphertext;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Builds {@link PasswordCiphertext} objects from the audit projection of the passwords
+ * table. Like {@link PasswordEntryMapper}, column positions are resolved once per result set.
+ */
+final class PasswordCiphertextMapper {
+    /** What a pass over every password reads: no website, category, notes or timestamps. */
+    static final String COLUMNS = "id, title, username, encrypted_password, encryption_iv";
+
+    private final int id;
+    private final int title;
+    private final int username;
+    private final int encryptedPassword;
+    private final int encryptionIv;
+
+    private PasswordCiphertextMapper(ResultSet rs) throws SQLException {
+        id = rs.findColumn("id");
+        title = rs.findColumn("title");
+        username = rs.findColumn("username");
+        encryptedPassword = rs.findColumn("encrypted_password");
+        encryptionIv = rs.findColumn("encryption_iv");
+    }
+
+    static PasswordCiphertextMapper of(ResultSet rs) throws SQLException {
+        return new PasswordCiphertextMapper(rs);
+    }
+
+    PasswordCiphertext map(ResultSet rs) throws SQLException {
+        return new PasswordCiphertext(
+            rs.getLong(id),
+            rs.getString(title),
+            rs.getString(username),
+            rs.getBytes(encryptedPassword),
+            rs.getBytes(encryptionIv)
+        );
+    }
+}
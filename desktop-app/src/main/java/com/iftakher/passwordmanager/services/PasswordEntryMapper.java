@@ -0,0 +1,66 @@
+package com.iftakher.passwordmanager.services;
+
+import com.iftakher.passwordmanager.models.PasswordEntry;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Builds {@link PasswordEntry} objects from rows of the passwords table.
+ *
+ * Column positions are looked up by name once, when the mapper is created for a
+ * result set, and every row after that is read by index.
+ */
+final class PasswordEntryMapper {
+    /** Column list shared by every query that maps full entries. */
+    static final String COLUMNS =
+        "id, title, website, username, encrypted_password, encryption_iv, category, notes, created_at, updated_at,"
+            + " password_fingerprint";
+
+    private final int id;
+    private final int title;
+    private final int website;
+    private final int username;
+    private final int encryptedPassword;
+    private final int encryptionIv;
+    private final int category;
+    private final int notes;
+    private final int createdAt;
+    private final int updatedAt;
+    private final int passwordFingerprint;
+
+    private PasswordEntryMapper(ResultSet rs) throws SQLException {
+        id = rs.findColumn("id");
+        title = rs.findColumn("title");
+        website = rs.findColumn("website");
+        username = rs.findColumn("username");
+        encryptedPassword = rs.findColumn("encrypted_password");
+        encryptionIv = rs.findColumn("encryption_iv");
+        category = rs.findColumn("category");
+        notes = rs.findColumn("notes");
+        createdAt = rs.findColumn("created_at");
+        updatedAt = rs.findColumn("updated_at");
+        passwordFingerprint = rs.findColumn("password_fingerprint");
+    }
+
+    static PasswordEntryMapper of(ResultSet rs) throws SQLException {
+        return new PasswordEntryMapper(rs);
+    }
+
+    PasswordEntry map(ResultSet rs) throws SQLException {
+        PasswordEntry entry = new PasswordEntry(
+            rs.getLong(id),
+            rs.getString(title),
+            rs.getString(website),
+            rs.getString(username),
+            rs.getBytes(encryptedPassword),
+            rs.getBytes(encryptionIv),
+            rs.getString(category),
+            rs.getString(notes),
+            rs.getLong(createdAt),
+            rs.getLong(updatedAt)
+        );
+        entry.setPasswordFingerprint(rs.getBytes(passwordFingerprint));
+        return entry;
+    }
+}
@@ -1,91 +1,278 @@
 package com.iftakher.passwordmanager.services;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+/**
+ * Random passwords and diceware-style passphrases.
+ *
+ * Passwords are built straight into a char array from alphabets prepared once, so the
+ * caller can wipe the result when done. Randomness is read from SecureRandom a block of
+ * bytes at a time rather than one call per character, and each thread has its own block
+ * and generator, which lets bulk generation run on every core without contention.
+ */
 public class PasswordGeneratorService {
-    private static final String LOWERCASE = "abcdefghijklmnopqrstuvwxyz";
-    private static final String UPPERCASE = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
-    private static final String NUMBERS = "0123456789";
-    private static final String SYMBOLS = "!@#$%^&*()_+-=[]{}|;:,.<>?";
-    private static final SecureRandom random = new SecureRandom();
+    /**
+     * Password lengths {@link #generateChars} accepts. The generator dialog's length
+     * spinner and the CLI's --length use the same range. 128 characters is far past any
+     * useful entropy and still fits the password fields of most sites.
+     */
+    public static final int MIN_LENGTH = 8;
+    public static final int MAX_LENGTH = 128;
+    /** Passphrase word counts {@link #generatePassphrase} accepts, also the dialog's bounds. */
+    public static final int MIN_PASSPHRASE_WORDS = 4;
+    public static final int MAX_PASSPHRASE_WORDS = 20;
 
-    public static String generatePassword(int length, boolean includeUppercase, 
-                                        boolean includeNumbers, boolean includeSymbols) {
-        if (length < 8) {
-            throw new IllegalArgumentException("Password length must be at least 8 characters");
+    private static final char[] LOWERCASE = "abcdefghijklmnopqrstuvwxyz".toCharArray();
+    private static final char[] UPPERCASE = "ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+    private static final char[] NUMBERS = "0123456789".toCharArray();
+    private static final char[] SYMBOLS = "!@#$%^&*()_+-=[]{}|;:,.<>?".toCharArray();
+
+    private static final int UPPERCASE_BIT = 1;
+    private static final int NUMBERS_BIT = 2;
+    private static final int SYMBOLS_BIT = 4;
+    // Full character pool for every combination of the optional sets, indexed by mask
+    private static final char[][] POOLS = new char[8][];
+
+    static {
+        for (int mask = 0; mask < POOLS.length; mask++) {
+            StringBuilder pool = new StringBuilder().append(LOWERCASE);
+            if ((mask & UPPERCASE_BIT) != 0) pool.append(UPPERCASE);
+            if ((mask & NUMBERS_BIT) != 0) pool.append(NUMBERS);
+            if ((mask & SYMBOLS_BIT) != 0) pool.append(SYMBOLS);
+            POOLS[mask] = pool.toString().toCharArray();
         }
+    }
+
+    private static final ThreadLocal<RandomSource> RANDOM = ThreadLocal.withInitial(RandomSource::new);
 
-        StringBuilder charPool = new StringBuilder(LOWERCASE);
-        if (includeUppercase) charPool.append(UPPERCASE);
-        if (includeNumbers) charPool.append(NUMBERS);
-        if (includeSymbols) charPool.append(SYMBOLS);
-
-        // Ensure at least one character from each selected set
-        List<Character> password = new ArrayList<>();
-        
-        // Add one lowercase
-        password.add(LOWERCASE.charAt(random.nextInt(LOWERCASE.length())));
-        
-        if (includeUppercase) {
-            password.add(UPPERCASE.charAt(random.nextInt(UPPERCASE.length())));
+    /**
+     * Unbiased small random ints cut from a block of SecureRandom bytes. The block is
+     * wiped after every generated secret, so it can't be used to reconstruct one.
+     */
+    static final class RandomSource {
+        private final SecureRandom random;
+        private final byte[] block = new byte[64];
+        private int position = block.length;
+
+        RandomSource() {
+            this(new SecureRandom());
         }
-        if (includeNumbers) {
-            password.add(NUMBERS.charAt(random.nextInt(NUMBERS.length())));
+
+        RandomSource(SecureRandom random) {
+            this.random = random;
         }
-        if (includeSymbols) {
-            password.add(SYMBOLS.charAt(random.nextInt(SYMBOLS.length())));
+
+        /** Uniform int in [0, bound), for bound up to 65536. */
+        int nextInt(int bound) {
+            int range = bound <= 256 ? 256 : 65536;
+            // Reject the top partial run of values, which would favour small results
+            int limit = range - range % bound;
+            while (true) {
+                int value = nextByte();
+                if (range > 256) {
+                    value = value << 8 | nextByte();
+                }
+                if (value < limit) {
+                    return value % bound;
+                }
+            }
         }
 
-        // Fill remaining characters
-        while (password.size() < length) {
-            password.add(charPool.charAt(random.nextInt(charPool.length())));
+        private int nextByte() {
+            if (position == block.length) {
+                random.nextBytes(block);
+                position = 0;
+            }
+            return block[position++] & 0xFF;
         }
 
-        // Shuffle the password
-        for (int i = password.size() - 1; i > 0; i--) {
-            int j = random.nextInt(i + 1);
-            Character temp = password.get(i);
-            password.set(i, password.get(j));
-            password.set(j, temp);
+        void wipe() {
+            Arrays.fill(block, (byte) 0);
+            position = block.length;
         }
+    }
+
+    /** EFF large wordlist (7,776 words, CC BY 3.0), read on first use. */
+    private static class Wordlist {
+        static final String RESOURCE = "/wordlists/eff_large_wordlist.txt";
+        static final char[][] WORDS = load();
 
-        // Convert to string
-        StringBuilder result = new StringBuilder();
-        for (Character c : password) {
-            result.append(c);
+        private static char[][] load() {
+            InputStream in = PasswordGeneratorService.class.getResourceAsStream(RESOURCE);
+            if (in == null) {
+                throw new IllegalStateException("Missing passphrase wordlist " + RESOURCE);
+            }
+            List<char[]> words = new ArrayList<>(7776);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    if (!line.isBlank()) {
+                        words.add(line.trim().toCharArray());
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read passphrase wordlist", e);
+            }
+            return words.toArray(new char[0][]);
         }
+    }
 
-        return result.toString();
+    public static String generatePassword(int length, boolean includeUppercase,
+                                        boolean includeNumbers, boolean includeSymbols) {
+        char[] password = generateChars(length, includeUppercase, includeNumbers, includeSymbols);
+        try {
+            return new String(password);
+        } finally {
+            Arrays.fill(password, '\0');
+        }
     }
 
-    public static String assessPasswordStrength(String password) {
-        if (password == null || password.length() < 8) {
-            return "Very Weak";
+    /**
+     * Generate a password into a new char array, with at least one character from every
+     * selected set. The caller owns the array and should wipe it after use.
+     */
+    public static char[] generateChars(int length, boolean includeUppercase,
+                                       boolean includeNumbers, boolean includeSymbols) {
+        if (length < MIN_LENGTH || length > MAX_LENGTH) {
+            throw new IllegalArgumentException(
+                "Password length must be between " + MIN_LENGTH + " and " + MAX_LENGTH + " characters");
+        }
+        RandomSource random = RANDOM.get();
+        char[] pool = POOLS[mask(includeUppercase, includeNumbers, includeSymbols)];
+        char[] password = new char[length];
+        try {
+            // Ensure at least one character from each selected set
+            int n = 0;
+            password[n++] = pick(LOWERCASE, random);
+            if (includeUppercase) password[n++] = pick(UPPERCASE, random);
+            if (includeNumbers) password[n++] = pick(NUMBERS, random);
+            if (includeSymbols) password[n++] = pick(SYMBOLS, random);
+
+            // Fill remaining characters
+            while (n < length) {
+                password[n++] = pick(pool, random);
+            }
+
+            // Shuffle so the guaranteed characters aren't always at the front
+            for (int i = length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                char temp = password[i];
+                password[i] = password[j];
+                password[j] = temp;
+            }
+            return password;
+        } finally {
+            random.wipe();
+        }
+    }
+
+    /**
+     * Generate a passphrase of random words from the EFF wordlist, about 12.9 bits each.
+     * Words are joined by the separator; optionally each is capitalized and a random digit
+     * is appended to one of them, for sites that insist on those. The caller should wipe
+     * the returned array after use.
+     */
+    public static char[] generatePassphrase(int words, char separator, boolean capitalize, boolean includeNumber) {
+        if (words < MIN_PASSPHRASE_WORDS || words > MAX_PASSPHRASE_WORDS) {
+            throw new IllegalArgumentException(
+                "Passphrase must have between " + MIN_PASSPHRASE_WORDS + " and " + MAX_PASSPHRASE_WORDS + " words");
+        }
+        RandomSource random = RANDOM.get();
+        char[][] list = Wordlist.WORDS;
+        char[][] picked = new char[words][];
+        int length = words - 1 + (includeNumber ? 1 : 0);
+        int numbered;
+        char digit;
+        try {
+            for (int i = 0; i < words; i++) {
+                picked[i] = list[random.nextInt(list.length)];
+                length += picked[i].length;
+            }
+            numbered = includeNumber ? random.nextInt(words) : -1;
+            digit = pick(NUMBERS, random);
+        } finally {
+            random.wipe();
+        }
+
+        char[] passphrase = new char[length];
+        int n = 0;
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                passphrase[n++] = separator;
+            }
+            System.arraycopy(picked[i], 0, passphrase, n, picked[i].length);
+            if (capitalize) {
+                passphrase[n] = Character.toUpperCase(passphrase[n]);
+            }
+            n += picked[i].length;
+            if (i == numbered) {
+                passphrase[n++] = digit;
+            }
+        }
+        return passphrase;
+    }
+
+    /**
+     * Generate many credentials at once, in parallel across all cores, e.g.
+     * {@code generateBulk(1000, () -> generateChars(20, true, true, true))}.
+     * The caller should wipe the returned arrays after use.
+     */
+    public static List<char[]> generateBulk(int count, Supplier<char[]> generator) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count must not be negative");
         }
+        return IntStream.range(0, count).parallel()
+            .mapToObj(i -> generator.get())
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Entropy in bits of a password from {@link #generateChars} with these settings.
+     */
+    public static double passwordEntropyBits(int length, boolean includeUppercase,
+                                             boolean includeNumbers, boolean includeSymbols) {
+        return length * log2(POOLS[mask(includeUppercase, includeNumbers, includeSymbols)].length);
+    }
+
+    /**
+     * Entropy in bits of a passphrase from {@link #generatePassphrase}. Capitalizing adds
+     * nothing; the digit adds its own value and its position.
+     */
+    public static double passphraseEntropyBits(int words, boolean includeNumber) {
+        double bits = words * log2(Wordlist.WORDS.length);
+        return includeNumber ? bits + log2(NUMBERS.length) + log2(words) : bits;
+    }
+
+    /**
+     * Coarse strength label for a password; see {@link PasswordStrength} for the score
+     * and reasons behind it.
+     */
+    public static String assessPasswordStrength(String password) {
+        return PasswordStrength.of(password).getLabel();
+    }
+
+    private static int mask(boolean includeUppercase, boolean includeNumbers, boolean includeSymbols) {
+        return (includeUppercase ? UPPERCASE_BIT : 0)
+            | (includeNumbers ? NUMBERS_BIT : 0)
+            | (includeSymbols ? SYMBOLS_BIT : 0);
+    }
+
+    private static char pick(char[] alphabet, RandomSource random) {
+        return alphabet[random.nextInt(alphabet.length)];
+    }
 
-        int score = 0;
-        
-        // Length score
-        if (password.length() >= 12) score += 2;
-        else if (password.length() >= 8) score += 1;
-
-        // Character variety score
-        boolean hasLower = password.matches(".*[a-z].*");
-        boolean hasUpper = password.matches(".*[A-Z].*");
-        boolean hasDigit = password.matches(".*\\d.*");
-        boolean hasSymbol = password.matches(".*[!@#$%^&*()_+\\-=\\[\\]{};':\",./<>?].*");
-
-        if (hasLower && hasUpper) score += 1;
-        if (hasDigit) score += 1;
-        if (hasSymbol) score += 1;
-        if (hasLower && hasUpper && hasDigit && hasSymbol) score += 1;
-
-        if (score >= 6) return "Very Strong";
-        if (score >= 4) return "Strong";
-        if (score >= 3) return "Good";
-        if (score >= 2) return "Fair";
-        return "Weak";
+    private static double log2(double value) {
+        return Math.log(value) / Math.log(2);
     }
-}
\ No newline at end of file
+}
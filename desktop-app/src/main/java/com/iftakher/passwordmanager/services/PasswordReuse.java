@@ -0,0 +1,61 @@
+package com.iftakher.passwordmanager.services;
+
+import com.iftakher.passwordmanager.models.PasswordEntry;
+import com.iftakher.passwordmanager.models.PasswordSummary;
+
+import javax.crypto.SecretKey;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Finds entries that share a password.
+ *
+ * Every entry stores a keyed fingerprint of its password, written whenever the password
+ * is saved, imported or re-keyed, so reuse is one grouped query over an index and
+ * nothing is decrypted. Only entries stored before fingerprints existed have to be
+ * decrypted, once, to fill theirs in.
+ */
+public class PasswordReuse {
+
+    /**
+     * Groups of entries sharing a password, largest first, after fingerprinting any
+     * entries that don't have one yet.
+     */
+    public static List<List<PasswordSummary>> find(DatabaseService databaseService, SecretKey key)
+            throws SQLException {
+        fingerprintMissing(databaseService, key);
+        return databaseService.findReusedPasswords();
+    }
+
+    /**
+     * Fingerprint entries stored without one, across all cores. Entries that don't decrypt
+     * under the key are skipped and left without one. Returns how many were filled in.
+     */
+    public static int fingerprintMissing(DatabaseService databaseService, SecretKey key) throws SQLException {
+        List<PasswordEntry> missing = databaseService.getPasswordsWithoutFingerprint();
+        if (missing.isEmpty()) {
+            return 0;
+        }
+        AtomicInteger failed = new AtomicInteger();
+        List<PasswordEntry> fingerprinted = missing.parallelStream()
+            .filter(entry -> {
+                try {
+                    entry.setPasswordFingerprint(EncryptionService.fingerprint(
+                        new EncryptionService.EncryptedData(entry.getEncryptedPassword(), entry.getEncryptionIv()), key));
+                    return true;
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    return false;
+                }
+            })
+            .collect(Collectors.toList());
+        int stored = databaseService.setPasswordFingerprints(fingerprinted);
+        System.out.println("Fingerprinted " + stored + " passwords for reuse detection");
+        if (failed.get() > 0) {
+            System.err.println("Could not decrypt " + failed.get() + " passwords to fingerprint them");
+        }
+        return stored;
+    }
+}
@@ -0,0 +1,177 @@
+package com.iftakher.passwordmanager.services;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Strength estimate for one password: an entropy figure in bits, a 0-100 score, a label
+ * and the reasons it scored low.
+ *
+ * The estimate is made in a single pass over the characters with no regexes and no
+ * copies, so it can run over a decrypted buffer that is wiped right after. Each character
+ * is worth the bits of the character sets in use, except the third and later characters
+ * of repeats (aaa) and runs (abc, 321), which are worth one bit. A password made of a
+ * few characters over and over is capped by how few there are. Dictionary words and
+ * keyboard patterns are not recognised, so this is an upper bound.
+ */
+public final class PasswordStrength {
+    public static final int MIN_LENGTH = 8;
+
+    /** Bits at which the score reaches 100 and the label Very Strong. */
+    private static final double FULL_SCORE_BITS = 80;
+    private static final double WEAK_BITS = 50;
+
+    private static final int LOWER_POOL = 26;
+    private static final int UPPER_POOL = 26;
+    private static final int DIGIT_POOL = 10;
+    private static final int SYMBOL_POOL = 33;
+    // Rough figure for anything outside printable ASCII
+    private static final int OTHER_POOL = 100;
+
+    /** Why a password scored lower than it could have. */
+    public enum Weakness {
+        TOO_SHORT("Shorter than " + MIN_LENGTH + " characters"),
+        NO_LOWERCASE("No lowercase letters"),
+        NO_UPPERCASE("No uppercase letters"),
+        NO_DIGITS("No digits"),
+        NO_SYMBOLS("No symbols"),
+        REPEATS("Repeated characters like aaa"),
+        SEQUENCES("Runs like abc or 321"),
+        FEW_DISTINCT("Few different characters");
+
+        private final String description;
+
+        Weakness(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() { return description; }
+    }
+
+    private final double entropyBits;
+    private final int score;
+    private final String label;
+    private final Set<Weakness> weaknesses;
+
+    private PasswordStrength(double entropyBits, String label, Set<Weakness> weaknesses) {
+        this.entropyBits = entropyBits;
+        this.score = (int) Math.round(Math.min(100, entropyBits * 100 / FULL_SCORE_BITS));
+        this.label = label;
+        this.weaknesses = weaknesses;
+    }
+
+    public static PasswordStrength of(char[] password) {
+        return of(CharBuffer.wrap(password));
+    }
+
+    public static PasswordStrength of(CharSequence password) {
+        int length = password == null ? 0 : password.length();
+        boolean lower = false, upper = false, digit = false, symbol = false, other = false;
+        int cheap = 0;
+        boolean repeats = false;
+        boolean sequences = false;
+        int repeatRun = 1;
+        int sequenceRun = 1;
+        int step = 0;
+        // Distinct characters: a bit per printable ASCII char, anything else counted as new
+        long seenLow = 0, seenHigh = 0;
+        int distinct = 0;
+
+        char previous = 0;
+        for (int i = 0; i < length; i++) {
+            char c = password.charAt(i);
+            if (c >= 'a' && c <= 'z') lower = true;
+            else if (c >= 'A' && c <= 'Z') upper = true;
+            else if (c >= '0' && c <= '9') digit = true;
+            else if (c >= ' ' && c <= '~') symbol = true;
+            else other = true;
+
+            if (c < 64) {
+                if ((seenLow & (1L << c)) == 0) distinct++;
+                seenLow |= 1L << c;
+            } else if (c < 128) {
+                if ((seenHigh & (1L << (c - 64))) == 0) distinct++;
+                seenHigh |= 1L << (c - 64);
+            } else {
+                distinct++;
+            }
+
+            if (i > 0 && c == previous) {
+                repeatRun++;
+                sequenceRun = 1;
+            } else if (i > 0 && Math.abs(c - previous) == 1
+                    && Character.isLetterOrDigit(c) && Character.isLetterOrDigit(previous)) {
+                sequenceRun = c - previous == step ? sequenceRun + 1 : 2;
+                repeatRun = 1;
+            } else {
+                repeatRun = 1;
+                sequenceRun = 1;
+            }
+            step = c - previous;
+            // A pair is common enough in random passwords; a third in a row is not
+            if (repeatRun >= 3 || sequenceRun >= 3) {
+                cheap++;
+                repeats |= repeatRun >= 3;
+                sequences |= sequenceRun >= 3;
+            }
+            previous = c;
+        }
+
+        int pool = (lower ? LOWER_POOL : 0) + (upper ? UPPER_POOL : 0) + (digit ? DIGIT_POOL : 0)
+            + (symbol ? SYMBOL_POOL : 0) + (other ? OTHER_POOL : 0);
+        double bits = pool == 0 ? 0 : (length - cheap) * log2(pool) + cheap;
+        boolean fewDistinct = length >= MIN_LENGTH && distinct * 3 <= length;
+        if (fewDistinct) {
+            bits = Math.min(bits, length * log2(Math.max(distinct, 2)));
+        }
+
+        String label;
+        if (length < MIN_LENGTH || bits < 28) label = "Very Weak";
+        else if (bits < 36) label = "Weak";
+        else if (bits < WEAK_BITS) label = "Fair";
+        else if (bits < 60) label = "Good";
+        else if (bits < FULL_SCORE_BITS) label = "Strong";
+        else label = "Very Strong";
+
+        Set<Weakness> weaknesses = EnumSet.noneOf(Weakness.class);
+        if (length < MIN_LENGTH) weaknesses.add(Weakness.TOO_SHORT);
+        if (repeats) weaknesses.add(Weakness.REPEATS);
+        if (sequences) weaknesses.add(Weakness.SEQUENCES);
+        if (fewDistinct) weaknesses.add(Weakness.FEW_DISTINCT);
+        // Missing character sets only matter while the password is not already strong
+        if (length > 0 && bits < 60) {
+            if (!lower) weaknesses.add(Weakness.NO_LOWERCASE);
+            if (!upper) weaknesses.add(Weakness.NO_UPPERCASE);
+            if (!digit) weaknesses.add(Weakness.NO_DIGITS);
+            if (!symbol) weaknesses.add(Weakness.NO_SYMBOLS);
+        }
+        return new PasswordStrength(bits, label, weaknesses);
+    }
+
+    public double getEntropyBits() { return entropyBits; }
+
+    /** 0 to 100; 100 means at least 80 bits. */
+    public int getScore() { return score; }
+
+    public String getLabel() { return label; }
+
+    /** Fair or worse: under 50 bits or too short. */
+    public boolean isWeak() { return entropyBits < WEAK_BITS || weaknesses.contains(Weakness.TOO_SHORT); }
+
+    public Set<Weakness> getWeaknesses() { return weaknesses; }
+
+    public List<String> getReasons() {
+        List<String> reasons = new ArrayList<>(weaknesses.size());
+        for (Weakness weakness : weaknesses) {
+            reasons.add(weakness.getDescription());
+        }
+        return reasons;
+    }
+
+    private static double log2(double value) {
+        return Math.log(value) / Math.log(2);
+    }
+}
@@ -0,0 +1,49 @@
+package com.iftakher.passwordmanager.services;
+
+import com.iftakher.passwordmanager.models.PasswordSummary;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Builds {@link PasswordSummary} objects from the listing projection of the passwords
+ * table. Like {@link PasswordEntryMapper}, column positions are resolved once per result set.
+ */
+final class PasswordSummaryMapper {
+    /** Only what the vault list shows: no ciphertext, IV or notes. */
+    static final String COLUMNS = "id, title, website, username, category, created_at, updated_at";
+
+    private final int id;
+    private final int title;
+    private final int website;
+    private final int username;
+    private final int category;
+    private final int createdAt;
+    private final int updatedAt;
+
+    private PasswordSummaryMapper(ResultSet rs) throws SQLException {
+        id = rs.findColumn("id");
+        title = rs.findColumn("title");
+        website = rs.findColumn("website");
+        username = rs.findColumn("username");
+        category = rs.findColumn("category");
+        createdAt = rs.findColumn("created_at");
+        updatedAt = rs.findColumn("updated_at");
+    }
+
+    static PasswordSummaryMapper of(ResultSet rs) throws SQLException {
+        return new PasswordSummaryMapper(rs);
+    }
+
+    PasswordSummary map(ResultSet rs) throws SQLException {
+        return new PasswordSummary(
+            rs.getLong(id),
+            rs.getString(title),
+            rs.getString(website),
+            rs.getString(username),
+            rs.getString(category),
+            rs.getLong(createdAt),
+            rs.getLong(updatedAt)
+        );
+    }
+}
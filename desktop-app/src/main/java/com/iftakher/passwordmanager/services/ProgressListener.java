@@ -0,0 +1,12 @@
+package com.iftakher.passwordmanager.services;
+
+/**
+ * Receives progress updates from long-running vault operations.
+ * Implementations may be called from background and worker threads.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+    ProgressListener NONE = (done, total) -> {};
+
+    void onProgress(long done, long total);
+}
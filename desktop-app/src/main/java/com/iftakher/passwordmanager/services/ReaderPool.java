@@ -0,0 +1,118 @@
+package com.iftakher.passwordmanager.services;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fixed set of read-only connections to the vault database.
+ *
+ * With the database in WAL mode every reader sees the last committed state and
+ * neither blocks nor is blocked by the writer, so searches, exports and page loads
+ * can run on background threads while the UI saves edits. Each connection keeps its
+ * own statement cache and is used by one thread at a time.
+ */
+class ReaderPool implements AutoCloseable {
+    private static final long BORROW_TIMEOUT_SECONDS = 30;
+
+    /** Work done with a borrowed connection's statement cache. */
+    @FunctionalInterface
+    interface Work<T, E extends Exception> {
+        T run(StatementCache statements) throws E;
+    }
+
+    private static class Reader {
+        final Connection connection;
+        final StatementCache statements;
+
+        Reader(Connection connection) {
+            this.connection = connection;
+            this.statements = new StatementCache(connection);
+        }
+
+        void close() {
+            statements.close();
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing reader connection: " + e.getMessage());
+            }
+        }
+    }
+
+    private final BlockingQueue<Reader> idle;
+    private final List<Reader> readers = new ArrayList<>();
+    private volatile boolean closed;
+
+    ReaderPool(String url, Properties properties, int size) throws SQLException {
+        idle = new ArrayBlockingQueue<>(size);
+        try {
+            for (int i = 0; i < size; i++) {
+                Reader reader = new Reader(DriverManager.getConnection(url, properties));
+                readers.add(reader);
+                idle.add(reader);
+            }
+        } catch (SQLException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Run the work on an idle reader, waiting for one to free up if all are busy.
+     */
+    <T, E extends Exception> T read(Work<T, E> work) throws SQLException, E {
+        Reader reader = borrow();
+        try {
+            return work.run(reader.statements);
+        } finally {
+            release(reader);
+        }
+    }
+
+    int size() {
+        return readers.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        // Readers still in use are closed when they are handed back
+        Reader reader;
+        while ((reader = idle.poll()) != null) {
+            reader.close();
+        }
+    }
+
+    private Reader borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Database is closed");
+        }
+        try {
+            Reader reader = idle.poll(BORROW_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (reader == null) {
+                throw new SQLException("Timed out waiting for a database reader");
+            }
+            return reader;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database reader", e);
+        }
+    }
+
+    private void release(Reader reader) {
+        synchronized (this) {
+            if (!closed) {
+                idle.add(reader);
+                return;
+            }
+        }
+        reader.close();
+    }
+}
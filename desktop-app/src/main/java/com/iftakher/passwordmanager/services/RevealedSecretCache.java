@@ -0,0 +1,157 @@
+package com.iftakher.passwordmanager.services;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short-lived cache of decrypted passwords, so a revealed row is decrypted once
+ * rather than on every table re-layout.
+ *
+ * Values are keyed by entry id and updatedAt, so an edited entry never serves its
+ * old password. They are held as char arrays and overwritten with zeros when they
+ * expire, are evicted to stay under the size bound, are invalidated, or the cache is
+ * cleared. Expiry counts from decryption, not last use, and a background sweep wipes
+ * expired values even if nothing reads the cache again.
+ */
+public class RevealedSecretCache implements AutoCloseable {
+    /** Decrypts one secret on a cache miss. */
+    @FunctionalInterface
+    public interface Loader {
+        char[] load() throws Exception;
+    }
+
+    private static final ScheduledExecutorService SWEEPER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "secret-cache-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static class Secret {
+        final long updatedAt;
+        final long expiresAt;
+        final char[] value;
+
+        Secret(long updatedAt, long expiresAt, char[] value) {
+            this.updatedAt = updatedAt;
+            this.expiresAt = expiresAt;
+            this.value = value;
+        }
+
+        void wipe() {
+            Arrays.fill(value, '\0');
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    // Insertion order is also expiry order, since every value lives for the same TTL
+    private final LinkedHashMap<Long, Secret> secrets = new LinkedHashMap<>();
+    private final ScheduledFuture<?> sweep;
+
+    public RevealedSecretCache(int maxEntries, long ttl, TimeUnit unit) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Cache must hold at least one secret");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = unit.toNanos(ttl);
+        long period = Math.max(1, unit.toMillis(ttl) / 2);
+        this.sweep = SWEEPER.scheduleWithFixedDelay(this::purgeExpired, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Return the cached password for this version of the entry, or null on a miss. Never
+     * decrypts, so it is cheap enough for the FX thread. Every call copies the cached
+     * value into a new string, so callers should keep the one they got while it is shown.
+     */
+    public synchronized String getIfPresent(long id, long updatedAt) {
+        purgeExpired(System.nanoTime());
+        Secret secret = secrets.get(id);
+        return secret != null && secret.updatedAt == updatedAt ? new String(secret.value) : null;
+    }
+
+    /**
+     * Return the cached password for this version of the entry, decrypting it with the
+     * loader on a miss. Like {@link #getIfPresent}, the result is a new string.
+     */
+    public String get(long id, long updatedAt, Loader loader) throws Exception {
+        String cached = getIfPresent(id, updatedAt);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Decrypt outside the lock; a concurrent miss on the same id just does it twice
+        char[] value = loader.load();
+        synchronized (this) {
+            Secret replaced = secrets.remove(id);
+            if (replaced != null) {
+                replaced.wipe();
+            }
+            secrets.put(id, new Secret(updatedAt, System.nanoTime() + ttlNanos, value));
+            evictOverflow();
+            return new String(value);
+        }
+    }
+
+    /**
+     * Drop and wipe the cached password of an entry, e.g. after it changed or was deleted.
+     */
+    public synchronized void invalidate(long id) {
+        Secret secret = secrets.remove(id);
+        if (secret != null) {
+            secret.wipe();
+        }
+    }
+
+    public synchronized void purgeExpired() {
+        purgeExpired(System.nanoTime());
+    }
+
+    public synchronized int size() {
+        return secrets.size();
+    }
+
+    /**
+     * Wipe every cached password. Called on logout.
+     */
+    public synchronized void clear() {
+        for (Secret secret : secrets.values()) {
+            secret.wipe();
+        }
+        secrets.clear();
+    }
+
+    /**
+     * Clear the cache and stop its background sweep.
+     */
+    @Override
+    public void close() {
+        sweep.cancel(false);
+        clear();
+    }
+
+    private void purgeExpired(long now) {
+        Iterator<Secret> oldest = secrets.values().iterator();
+        while (oldest.hasNext()) {
+            Secret secret = oldest.next();
+            if (secret.expiresAt - now > 0) {
+                break;
+            }
+            secret.wipe();
+            oldest.remove();
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<Long, Secret>> oldest = secrets.entrySet().iterator();
+        while (secrets.size() > maxEntries && oldest.hasNext()) {
+            oldest.next().getValue().wipe();
+            oldest.remove();
+        }
+    }
+}
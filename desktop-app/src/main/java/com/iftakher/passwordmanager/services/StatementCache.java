@@ -0,0 +1,79 @@
+package com.iftakher.passwordmanager.services;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps compiled statements for one connection so repeated queries skip the SQL
+ * parse and plan step. Statements are keyed by their SQL text and the least recently
+ * used one is closed once the cache is full.
+ *
+ * Statements handed out stay owned by the cache: callers close their ResultSets
+ * but never the statement itself. Not thread-safe; the owner serialises access.
+ */
+class StatementCache implements AutoCloseable {
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private final Connection connection;
+    private final int capacity;
+    private final LinkedHashMap<String, PreparedStatement> statements =
+        new LinkedHashMap<>(16, 0.75f, true);
+
+    StatementCache(Connection connection) {
+        this(connection, DEFAULT_CAPACITY);
+    }
+
+    StatementCache(Connection connection, int capacity) {
+        this.connection = connection;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Return the cached statement for the SQL, preparing it on first use.
+     * Parameters left over from the previous caller are cleared.
+     */
+    PreparedStatement get(String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement != null && !statement.isClosed()) {
+            statement.clearParameters();
+            return statement;
+        }
+
+        statement = connection.prepareStatement(sql);
+        statements.put(sql, statement);
+        evictIfNeeded();
+        return statement;
+    }
+
+    int size() {
+        return statements.size();
+    }
+
+    @Override
+    public void close() {
+        for (PreparedStatement statement : statements.values()) {
+            closeQuietly(statement);
+        }
+        statements.clear();
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, PreparedStatement>> eldest = statements.entrySet().iterator();
+        while (statements.size() > capacity && eldest.hasNext()) {
+            closeQuietly(eldest.next().getValue());
+            eldest.remove();
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing cached statement: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.iftakher.passwordmanager.services;
+
+import com.iftakher.passwordmanager.models.PasswordSummary;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The summaries of a vault loaded into memory, by id and in (title, id) order.
+ *
+ * Searching is done by the database's full-text index; this only answers lookups by id
+ * and the plain listing. It is safe to read from several threads while it is being
+ * updated.
+ */
+public class SummaryIndex {
+    public static final Comparator<PasswordSummary> ORDER =
+        Comparator.comparing(PasswordSummary::getTitle).thenComparingLong(PasswordSummary::getId);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, PasswordSummary> byId = new HashMap<>();
+    private final TreeSet<PasswordSummary> ordered = new TreeSet<>(ORDER);
+
+    public void addAll(Collection<PasswordSummary> entries) {
+        lock.writeLock().lock();
+        try {
+            for (PasswordSummary entry : entries) {
+                removeInternal(entry.getId());
+                addInternal(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Insert or replace the entry with the same id.
+     */
+    public void update(PasswordSummary entry) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(entry.getId());
+            addInternal(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            byId.clear();
+            ordered.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public PasswordSummary get(long id) {
+        lock.readLock().lock();
+        try {
+            return byId.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Every entry in (title, id) order.
+     */
+    public List<PasswordSummary> list() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(ordered);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addInternal(PasswordSummary entry) {
+        byId.put(entry.getId(), entry);
+        ordered.add(entry);
+    }
+
+    private void removeInternal(long id) {
+        PasswordSummary entry = byId.remove(id);
+        if (entry != null) {
+            ordered.remove(entry);
+        }
+    }
+}
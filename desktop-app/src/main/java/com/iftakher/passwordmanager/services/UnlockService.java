@@ -0,0 +1,223 @@
+package com.iftakher.passwordmanager.services;
+
+import com.iftakher.passwordmanager.models.PasswordEntry;
+
+import javax.crypto.SecretKey;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.spec.InvalidKeySpecException;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Verifies the master password and produces the vault key with a single KDF run.
+ *
+ * The master password is stretched once with PBKDF2 into a master secret, which HKDF
+ * then splits into two independent values: a verifier that is stored in the settings
+ * table and compared on login, and the AES key that encrypts the vault. Knowing the
+ * verifier reveals nothing about the key.
+ *
+ * Vaults created before this scheme (a separate 65,536 round PBKDF2 hash plus a
+ * 100,000 round key derivation) are migrated on their first successful unlock: the
+ * entries are re-encrypted under the new key and the settings rewritten in a single
+ * transaction. The old salt is kept, so exports made before the migration (which are
+ * encrypted under the old key) can still be imported with the master password.
+ */
+public class UnlockService {
+    static final String KDF_VERSION_KEY = "kdf_version";
+    static final String VERIFIER_KEY = "master_password_verifier";
+    static final String SALT_KEY = "master_password_salt";
+    static final String LEGACY_HASH_KEY = "master_password_hash";
+    static final String LEGACY_SALT_KEY = "legacy_master_password_salt";
+
+    private static final String CURRENT_KDF_VERSION = "2";
+    private static final int LEGACY_HASH_ITERATIONS = 65536;
+    private static final int SECRET_LENGTH = 32;
+    private static final String VERIFIER_INFO = "passhelper master password verifier v2";
+    private static final String VAULT_KEY_INFO = "passhelper vault encryption key v2";
+
+    private final DatabaseService databaseService;
+
+    public UnlockService(DatabaseService databaseService) {
+        this.databaseService = databaseService;
+    }
+
+    /**
+     * Check the master password and return the vault key, or null if the password is wrong.
+     * The first call on a new vault sets the password; a legacy vault is migrated.
+     */
+    public SecretKey unlock(String masterPassword, ProgressListener progress) throws Exception {
+        Map<String, String> settings =
+            databaseService.getSettings(KDF_VERSION_KEY, VERIFIER_KEY, SALT_KEY, LEGACY_HASH_KEY);
+
+        if (CURRENT_KDF_VERSION.equals(settings.get(KDF_VERSION_KEY))) {
+            byte[] salt = Base64.getDecoder().decode(settings.get(SALT_KEY));
+            byte[] storedVerifier = Base64.getDecoder().decode(settings.get(VERIFIER_KEY));
+            MasterSecret secret = derive(masterPassword, salt);
+            return MessageDigest.isEqual(secret.verifier, storedVerifier) ? secret.key : null;
+        }
+
+        synchronized (databaseService) {
+            String legacyHash = settings.get(LEGACY_HASH_KEY);
+            if (isEmpty(legacyHash)) {
+                // First time setup: any password becomes the master password
+                return rotate(masterPassword, null, null, progress);
+            }
+
+            String saltStr = settings.get(SALT_KEY);
+            byte[] legacySalt = isEmpty(saltStr) ? null : Base64.getDecoder().decode(saltStr);
+            if (!verifyLegacy(masterPassword, legacyHash, legacySalt)) {
+                return null;
+            }
+
+            SecretKey legacyKey = legacySalt == null
+                ? null
+                : EncryptionService.generateKeyFromPassword(masterPassword, legacySalt);
+            System.out.println("Migrating vault to single-derivation unlock");
+            return rotate(masterPassword, legacyKey, legacySalt, progress);
+        }
+    }
+
+    /**
+     * Whether the vault was migrated from the legacy scheme, so exports made before then
+     * need {@link #legacyExportKey} to import.
+     */
+    public boolean hasLegacyExportKey() throws SQLException {
+        return !isEmpty(databaseService.getSetting(LEGACY_SALT_KEY));
+    }
+
+    /**
+     * The key exports were encrypted under before the vault was migrated, derived from the
+     * master password the vault had then, or null if the vault was never migrated. The
+     * password is not checked here; a wrong one just fails to decrypt the export.
+     */
+    public SecretKey legacyExportKey(String masterPassword) throws Exception {
+        String salt = databaseService.getSetting(LEGACY_SALT_KEY);
+        if (isEmpty(salt)) {
+            return null;
+        }
+        return EncryptionService.generateKeyFromPassword(masterPassword, Base64.getDecoder().decode(salt));
+    }
+
+    /**
+     * Whether a master password has been chosen; until then {@link #unlock} sets it.
+     */
+    public boolean isMasterPasswordSet() throws SQLException {
+        Map<String, String> settings = databaseService.getSettings(KDF_VERSION_KEY, LEGACY_HASH_KEY);
+        return CURRENT_KDF_VERSION.equals(settings.get(KDF_VERSION_KEY)) || !isEmpty(settings.get(LEGACY_HASH_KEY));
+    }
+
+    /**
+     * Read the settings an unlock needs, so their statement is prepared and their pages
+     * are cached by the time the user submits the password.
+     */
+    public void warmUp() throws SQLException {
+        databaseService.getSettings(KDF_VERSION_KEY, VERIFIER_KEY, SALT_KEY, LEGACY_HASH_KEY);
+    }
+
+    /**
+     * Re-key the vault under a new master password. Returns the new vault key, or null
+     * if the old password is wrong. Nothing is changed unless every entry re-encrypts.
+     */
+    public SecretKey changeMasterPassword(String oldPassword, String newPassword, ProgressListener progress)
+            throws Exception {
+        synchronized (databaseService) {
+            SecretKey oldKey = unlock(oldPassword, ProgressListener.NONE);
+            if (oldKey == null) {
+                return null;
+            }
+            return rotate(newPassword, oldKey, null, progress);
+        }
+    }
+
+    /**
+     * Derive a fresh salt and key for the password, re-encrypt every entry from the current
+     * key (null when the vault cannot hold entries yet) and commit it all at once. A legacy
+     * salt is recorded for importing exports made under the legacy key.
+     */
+    private SecretKey rotate(String password, SecretKey currentKey, byte[] legacySalt, ProgressListener progress)
+            throws Exception {
+        byte[] salt = EncryptionService.generateSalt();
+        MasterSecret secret = derive(password, salt);
+
+        List<PasswordEntry> entries = databaseService.getAllPasswords();
+        if (currentKey == null && !entries.isEmpty()) {
+            throw new IllegalStateException("Vault has entries but no key to decrypt them");
+        }
+        long total = entries.size() * 2L;
+        if (!entries.isEmpty()) {
+            VaultReEncryptor.reEncrypt(entries, currentKey, secret.key, progress, total);
+        }
+
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put(SALT_KEY, Base64.getEncoder().encodeToString(salt));
+        settings.put(VERIFIER_KEY, Base64.getEncoder().encodeToString(secret.verifier));
+        settings.put(KDF_VERSION_KEY, CURRENT_KDF_VERSION);
+        // The legacy hash must not survive: it could be brute-forced more cheaply than the verifier
+        settings.put(LEGACY_HASH_KEY, "");
+        if (legacySalt != null) {
+            settings.put(LEGACY_SALT_KEY, Base64.getEncoder().encodeToString(legacySalt));
+        }
+        databaseService.rotateVaultKey(entries, settings, progress, total);
+        return secret.key;
+    }
+
+    private static MasterSecret derive(String password, byte[] salt) throws Exception {
+        char[] chars = password.toCharArray();
+        byte[] master = EncryptionService.pbkdf2(chars, salt, EncryptionService.getKdfIterations(), SECRET_LENGTH * 8);
+        try {
+            byte[] verifier = EncryptionService.hkdf(master, salt, VERIFIER_INFO, SECRET_LENGTH);
+            byte[] keyBytes = EncryptionService.hkdf(master, salt, VAULT_KEY_INFO, SECRET_LENGTH);
+            SecretKey key = EncryptionService.aesKey(keyBytes);
+            Arrays.fill(keyBytes, (byte) 0);
+            return new MasterSecret(verifier, key);
+        } finally {
+            Arrays.fill(master, (byte) 0);
+            Arrays.fill(chars, '\0');
+        }
+    }
+
+    /**
+     * The checks the app used before single-derivation unlock: a PBKDF2 hash,
+     * or from older versions a plaintext password or unsalted SHA-256.
+     */
+    private static boolean verifyLegacy(String password, String storedHash, byte[] salt)
+            throws NoSuchAlgorithmException, InvalidKeySpecException {
+        if (salt != null) {
+            byte[] hash = EncryptionService.pbkdf2(password.toCharArray(), salt, LEGACY_HASH_ITERATIONS, 256);
+            if (MessageDigest.isEqual(hash, decodeOrNull(storedHash))) {
+                return true;
+            }
+        }
+        if (storedHash.equals(password)) {
+            return true;
+        }
+        return storedHash.equals(EncryptionService.hashPassword(password));
+    }
+
+    private static byte[] decodeOrNull(String value) {
+        try {
+            return Base64.getDecoder().decode(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.isEmpty();
+    }
+
+    private static class MasterSecret {
+        final byte[] verifier;
+        final SecretKey key;
+
+        MasterSecret(byte[] verifier, SecretKey key) {
+            this.verifier = verifier;
+            this.key = key;
+        }
+    }
+}
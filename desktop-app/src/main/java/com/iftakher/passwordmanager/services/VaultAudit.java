@@ -0,0 +1,138 @@
+package com.iftakher.passwordmanager.services;
+
+import com.iftakher.passwordmanager.models.PasswordCiphertext;
+
+import javax.crypto.SecretKey;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scores the strength of every password in the vault across all cores.
+ *
+ * Like {@link VaultReEncryptor}, the entries are split into ranges on a fork-join pool.
+ * Each password is decrypted into a per-thread char buffer, scored with
+ * {@link PasswordStrength} and wiped before the next one, so no plaintext String is
+ * created and nothing outlives the entry it came from. Only the id, title, username and
+ * ciphertext of each entry are read.
+ */
+public class VaultAudit {
+    private static final int SPLIT_THRESHOLD = 64;
+
+    private static final ThreadLocal<CharBuffer> SCRATCH = ThreadLocal.withInitial(() -> CharBuffer.allocate(256));
+
+    /** One audited entry. */
+    public static final class Finding {
+        private final long id;
+        private final String title;
+        private final String username;
+        private final PasswordStrength strength;
+
+        Finding(PasswordCiphertext entry, PasswordStrength strength) {
+            this.id = entry.getId();
+            this.title = entry.getTitle();
+            this.username = entry.getUsername();
+            this.strength = strength;
+        }
+
+        public long getId() { return id; }
+
+        public String getTitle() { return title; }
+
+        public String getUsername() { return username; }
+
+        public PasswordStrength getStrength() { return strength; }
+    }
+
+    /**
+     * Audit the whole vault, weakest passwords first.
+     */
+    public static List<Finding> audit(DatabaseService databaseService, SecretKey key, ProgressListener progress)
+            throws Exception {
+        return audit(databaseService.getPasswordCiphertexts(), key, progress);
+    }
+
+    /**
+     * Audit the given entries, weakest passwords first. The first entry that fails to
+     * decrypt aborts the run.
+     */
+    public static List<Finding> audit(List<PasswordCiphertext> entries, SecretKey key, ProgressListener progress) {
+        Finding[] findings = new Finding[entries.size()];
+        ForkJoinPool.commonPool().invoke(new RangeTask(entries, findings, 0, entries.size(), key,
+            progress, new AtomicLong()));
+        Arrays.sort(findings, Comparator.comparingInt((Finding f) -> f.getStrength().getScore())
+            .thenComparing(Finding::getTitle, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+            .thenComparingLong(Finding::getId));
+        return Arrays.asList(findings);
+    }
+
+    private static PasswordStrength score(PasswordCiphertext entry, SecretKey key) throws Exception {
+        EncryptionService.EncryptedData data =
+            new EncryptionService.EncryptedData(entry.getEncryptedPassword(), entry.getEncryptionIv());
+        // UTF-8 never decodes to more chars than it has bytes
+        CharBuffer plain = scratch(data.getEncryptedData().length);
+        try {
+            EncryptionService.decryptInto(data, key, plain);
+            return PasswordStrength.of(plain.flip());
+        } finally {
+            Arrays.fill(plain.array(), 0, plain.limit(), '\0');
+        }
+    }
+
+    private static CharBuffer scratch(int capacity) {
+        CharBuffer scratch = SCRATCH.get();
+        if (scratch.capacity() < capacity) {
+            scratch = CharBuffer.allocate(Math.max(capacity, scratch.capacity() * 2));
+            SCRATCH.set(scratch);
+        }
+        return scratch.clear();
+    }
+
+    private static class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<PasswordCiphertext> entries;
+        private final Finding[] findings;
+        private final int from;
+        private final int to;
+        private final SecretKey key;
+        private final ProgressListener progress;
+        private final AtomicLong done;
+
+        RangeTask(List<PasswordCiphertext> entries, Finding[] findings, int from, int to, SecretKey key,
+                  ProgressListener progress, AtomicLong done) {
+            this.entries = entries;
+            this.findings = findings;
+            this.from = from;
+            this.to = to;
+            this.key = key;
+            this.progress = progress;
+            this.done = done;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int mid = (from + to) >>> 1;
+                invokeAll(
+                    new RangeTask(entries, findings, from, mid, key, progress, done),
+                    new RangeTask(entries, findings, mid, to, key, progress, done));
+                return;
+            }
+
+            for (int i = from; i < to; i++) {
+                PasswordCiphertext entry = entries.get(i);
+                try {
+                    findings[i] = new Finding(entry, score(entry, key));
+                } catch (Exception e) {
+                    throw new IllegalStateException("Failed to decrypt entry id=" + entry.getId(), e);
+                }
+            }
+            progress.onProgress(done.addAndGet(to - from), entries.size());
+        }
+    }
+}
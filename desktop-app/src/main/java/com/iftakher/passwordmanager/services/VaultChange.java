@@ -0,0 +1,40 @@
+package com.iftakher.passwordmanager.services;
+
+import com.iftakher.passwordmanager.models.PasswordEntry;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A committed change to the passwords table, published by {@link DatabaseService}
+ * so views can patch what they show instead of re-reading the vault.
+ *
+ * Inserted and updated entries carry their new state; deleted entries carry the
+ * row as it was before the delete.
+ */
+public final class VaultChange {
+    public enum Type { INSERTED, UPDATED, DELETED }
+
+    /**
+     * Receives changes on the thread that made them, while the writer is still held,
+     * so implementations should only hand the change off (e.g. to the FX thread).
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void onVaultChange(VaultChange change);
+    }
+
+    private final Type type;
+    private final List<PasswordEntry> entries;
+
+    VaultChange(Type type, List<PasswordEntry> entries) {
+        this.type = type;
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+    public Type getType() { return type; }
+
+    public List<PasswordEntry> getEntries() { return entries; }
+
+    public int size() { return entries.size(); }
+}
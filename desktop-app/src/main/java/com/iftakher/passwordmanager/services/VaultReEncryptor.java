@@ -0,0 +1,81 @@
+package com.iftakher.passwordmanager.services;
+
+import com.iftakher.passwordmanager.models.PasswordEntry;
+
+import javax.crypto.SecretKey;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Re-encrypts vault entries from one key to another across all cores.
+ *
+ * The work is split into ranges on a fork-join pool; every entry is decrypted with
+ * the old key and sealed again under the new key in place, along with its password
+ * fingerprint, which depends on the key too. Nothing is written here, so the caller
+ * can persist the results in a single transaction, and the first failing entry
+ * aborts the whole run.
+ */
+public class VaultReEncryptor {
+    private static final int SPLIT_THRESHOLD = 64;
+
+    public static void reEncrypt(List<PasswordEntry> entries, SecretKey oldKey, SecretKey newKey,
+                                 ProgressListener progress, long progressTotal) {
+        AtomicLong done = new AtomicLong();
+        ForkJoinPool.commonPool().invoke(new RangeTask(entries, 0, entries.size(), oldKey, newKey,
+            progress, progressTotal, done));
+    }
+
+    private static class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<PasswordEntry> entries;
+        private final int from;
+        private final int to;
+        private final SecretKey oldKey;
+        private final SecretKey newKey;
+        private final ProgressListener progress;
+        private final long progressTotal;
+        private final AtomicLong done;
+
+        RangeTask(List<PasswordEntry> entries, int from, int to, SecretKey oldKey, SecretKey newKey,
+                  ProgressListener progress, long progressTotal, AtomicLong done) {
+            this.entries = entries;
+            this.from = from;
+            this.to = to;
+            this.oldKey = oldKey;
+            this.newKey = newKey;
+            this.progress = progress;
+            this.progressTotal = progressTotal;
+            this.done = done;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int mid = (from + to) >>> 1;
+                invokeAll(
+                    new RangeTask(entries, from, mid, oldKey, newKey, progress, progressTotal, done),
+                    new RangeTask(entries, mid, to, oldKey, newKey, progress, progressTotal, done));
+                return;
+            }
+
+            for (int i = from; i < to; i++) {
+                PasswordEntry entry = entries.get(i);
+                try {
+                    // Plaintext stays in the worker's scratch buffer; no String per entry
+                    EncryptionService.EncryptedData sealed = EncryptionService.reEncrypt(
+                        new EncryptionService.EncryptedData(entry.getEncryptedPassword(), entry.getEncryptionIv()),
+                        oldKey, newKey);
+                    entry.setEncryptedPassword(sealed.getEncryptedData());
+                    entry.setEncryptionIv(sealed.getIv());
+                    entry.setPasswordFingerprint(sealed.getFingerprint());
+                } catch (Exception e) {
+                    throw new IllegalStateException("Failed to re-encrypt entry id=" + entry.getId(), e);
+                }
+            }
+            progress.onProgress(done.addAndGet(to - from), progressTotal);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.iftakher.passwordmanager.controllers;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ListDiffTest {
+
+    /** A row with a stable key and a payload that can change under it. */
+    private static final class Row {
+        final long id;
+        final String value;
+
+        Row(long id, String value) {
+            this.id = id;
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return id + "=" + value;
+        }
+    }
+
+    @Test
+    void insertsNewRowWithOneAddition() {
+        List<Row> rows = rows(0, 10);
+        ObservableList<Row> target = FXCollections.observableArrayList(rows);
+        List<Row> next = new ArrayList<>(rows);
+        next.add(4, new Row(100, "new"));
+
+        List<String> changes = apply(target, next);
+
+        assertSameRows(next, target);
+        assertEquals(List.of("add 4..5"), changes);
+    }
+
+    @Test
+    void removesMissingRowsInRuns() {
+        List<Row> rows = rows(0, 10);
+        ObservableList<Row> target = FXCollections.observableArrayList(rows);
+        List<Row> next = new ArrayList<>(rows);
+        // Rows 2-4 and 8
+        next.subList(2, 5).clear();
+        next.remove(5);
+
+        List<String> changes = apply(target, next);
+
+        assertSameRows(next, target);
+        assertEquals(List.of("remove 8 x1", "remove 2 x3"), changes);
+    }
+
+    @Test
+    void movesOnlyTheRowThatChangedPlace() {
+        List<Row> rows = rows(0, 10);
+        ObservableList<Row> target = FXCollections.observableArrayList(rows);
+        List<Row> next = new ArrayList<>(rows);
+        next.add(7, next.remove(1));
+
+        List<String> changes = apply(target, next);
+
+        assertSameRows(next, target);
+        assertEquals(List.of("remove 1 x1", "add 7..8"), changes);
+    }
+
+    @Test
+    void setsReplacedRowInPlace() {
+        List<Row> rows = rows(0, 10);
+        ObservableList<Row> target = FXCollections.observableArrayList(rows);
+        List<Row> next = new ArrayList<>(rows);
+        next.set(3, new Row(3, "edited"));
+
+        List<String> changes = apply(target, next);
+
+        assertSameRows(next, target);
+        assertEquals(List.of("replace 3..4"), changes);
+    }
+
+    @Test
+    void leavesUnchangedListAlone() {
+        List<Row> rows = rows(0, 10);
+        ObservableList<Row> target = FXCollections.observableArrayList(rows);
+
+        assertEquals(List.of(), apply(target, new ArrayList<>(rows)));
+    }
+
+    @Test
+    void replacesWholeListWhenTheEditsWouldBeLarger() {
+        List<Row> rows = rows(0, 2000);
+        ObservableList<Row> target = FXCollections.observableArrayList(rows);
+        // Every other row removed: a thousand separate runs
+        List<Row> next = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i += 2) {
+            next.add(rows.get(i));
+        }
+
+        List<String> changes = apply(target, next);
+
+        assertSameRows(next, target);
+        assertEquals(List.of("replace 0..1000"), changes);
+    }
+
+    @Test
+    void matchesRandomEdits() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            List<Row> rows = rows(0, random.nextInt(60));
+            ObservableList<Row> target = FXCollections.observableArrayList(rows);
+            List<Row> next = new ArrayList<>(rows);
+            for (int edit = random.nextInt(8); edit > 0; edit--) {
+                switch (random.nextInt(4)) {
+                    case 0 -> next.add(random.nextInt(next.size() + 1), new Row(1000 + round * 10L + edit, "new"));
+                    case 1 -> {
+                        if (!next.isEmpty()) next.remove(random.nextInt(next.size()));
+                    }
+                    case 2 -> {
+                        if (!next.isEmpty()) {
+                            int index = random.nextInt(next.size());
+                            next.set(index, new Row(next.get(index).id, "edited"));
+                        }
+                    }
+                    default -> {
+                        if (!next.isEmpty()) {
+                            Collections.swap(next, random.nextInt(next.size()), random.nextInt(next.size()));
+                        }
+                    }
+                }
+            }
+
+            apply(target, next);
+
+            assertSameRows(next, target);
+        }
+    }
+
+    private static List<String> apply(ObservableList<Row> target, List<Row> next) {
+        List<String> changes = new ArrayList<>();
+        ListChangeListener<Row> listener = change -> {
+            while (change.next()) {
+                if (change.wasReplaced()) {
+                    changes.add("replace " + change.getFrom() + ".." + change.getTo());
+                } else if (change.wasAdded()) {
+                    changes.add("add " + change.getFrom() + ".." + change.getTo());
+                } else if (change.wasRemoved()) {
+                    changes.add("remove " + change.getFrom() + " x" + change.getRemovedSize());
+                }
+            }
+        };
+        target.addListener(listener);
+        ListDiff.apply(target, next, row -> row.id);
+        target.removeListener(listener);
+        return changes;
+    }
+
+    private static void assertSameRows(List<Row> expected, List<Row> actual) {
+        assertEquals(expected.size(), actual.size(), () -> expected + " vs " + actual);
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), actual.get(i), "row " + i);
+        }
+    }
+
+    private static List<Row> rows(int from, int to) {
+        List<Row> rows = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            rows.add(new Row(i, "row " + i));
+        }
+        return rows;
+    }
+}
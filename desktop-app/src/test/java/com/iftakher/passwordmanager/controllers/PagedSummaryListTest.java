@@ -0,0 +1,218 @@
+package com.iftakher.passwordmanager.controllers;
+
+import com.iftakher.passwordmanager.models.PasswordEntry;
+import com.iftakher.passwordmanager.models.PasswordSummary;
+import com.iftakher.passwordmanager.services.DatabaseService;
+import com.iftakher.passwordmanager.services.ProgressListener;
+import com.iftakher.passwordmanager.services.VaultChange;
+import javafx.collections.ListChangeListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PagedSummaryListTest {
+    private static final int PAGE_SIZE = 10;
+
+    @TempDir
+    Path dir;
+
+    private DatabaseService databaseService;
+    private final List<VaultChange> changes = new ArrayList<>();
+    private final Random random = new Random(11);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        databaseService = new DatabaseService(dir.resolve("vault.db"));
+        List<PasswordEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            entries.add(entry("t" + random.nextInt(80)));
+        }
+        databaseService.addPasswords(entries, ProgressListener.NONE);
+        databaseService.addChangeListener(changes::add);
+    }
+
+    @AfterEach
+    void tearDown() {
+        databaseService.close();
+    }
+
+    @Test
+    void showsWholeVaultInOrder() throws Exception {
+        PagedSummaryList list = PagedSummaryList.load(databaseService, PAGE_SIZE);
+
+        assertEquals(listing(), new ArrayList<>(list));
+    }
+
+    @Test
+    void indexOfFindsRowsBySortKey() throws Exception {
+        PagedSummaryList list = PagedSummaryList.load(databaseService, PAGE_SIZE);
+        List<PasswordSummary> rows = listing();
+
+        for (int index = 0; index < rows.size(); index += 13) {
+            assertEquals(index, list.indexOf(rows.get(index)));
+        }
+    }
+
+    @Test
+    void insertFiresOneAdditionAtItsIndex() throws Exception {
+        PagedSummaryList list = PagedSummaryList.load(databaseService, PAGE_SIZE);
+        List<String> fired = record(list);
+
+        databaseService.addPassword(entry("t40x"));
+        int index = applyAll(list);
+
+        List<PasswordSummary> rows = listing();
+        assertEquals(rows, new ArrayList<>(list));
+        assertEquals("t40x", rows.get(index).getTitle());
+        assertEquals(List.of("add " + index), fired);
+    }
+
+    @Test
+    void deleteFiresOneRemoval() throws Exception {
+        PagedSummaryList list = PagedSummaryList.load(databaseService, PAGE_SIZE);
+        PasswordSummary victim = list.get(55);
+        List<String> fired = record(list);
+
+        databaseService.deletePassword(victim.getId());
+
+        assertEquals(-1, applyAll(list));
+        assertEquals(listing(), new ArrayList<>(list));
+        assertEquals(List.of("remove 55"), fired);
+    }
+
+    @Test
+    void retitleMovesRowWhenItsOldPageIsCached() throws Exception {
+        PagedSummaryList list = PagedSummaryList.load(databaseService, PAGE_SIZE);
+        PasswordSummary shown = list.get(5);
+        PasswordEntry entry = databaseService.getPassword(shown.getId());
+        entry.setTitle("zz moved");
+        waitForClockTick(shown);
+
+        databaseService.updatePassword(entry);
+
+        assertEquals(list.size() - 1, applyAll(list));
+        assertEquals(listing(), new ArrayList<>(list));
+    }
+
+    @Test
+    void updateOfUncachedRowAsksForReload() throws Exception {
+        PagedSummaryList list = PagedSummaryList.load(databaseService, PAGE_SIZE);
+        PasswordEntry entry = databaseService.getPassword(listing().get(150).getId());
+        entry.setTitle("a moved");
+
+        databaseService.updatePassword(entry);
+
+        assertEquals(-2, applyAll(list));
+    }
+
+    @Test
+    void staysInStepThroughRandomEdits() throws Exception {
+        PagedSummaryList list = PagedSummaryList.load(databaseService, PAGE_SIZE);
+        List<PasswordSummary> mirror = new ArrayList<>(list);
+        mirror(list, mirror);
+        int reloads = 0;
+
+        for (int step = 0; step < 600; step++) {
+            int op = random.nextInt(3);
+            if (op == 0 || list.isEmpty()) {
+                databaseService.addPassword(entry("t" + random.nextInt(80)));
+            } else if (op == 1) {
+                databaseService.deletePassword(list.get(random.nextInt(list.size())).getId());
+            } else {
+                PasswordSummary shown = list.get(random.nextInt(list.size()));
+                PasswordEntry entry = databaseService.getPassword(shown.getId());
+                if (random.nextBoolean()) {
+                    entry.setTitle("t" + random.nextInt(80));
+                } else {
+                    entry.setUsername("u" + random.nextInt());
+                }
+                waitForClockTick(shown);
+                databaseService.updatePassword(entry);
+            }
+            // Touch rows the way a scrolling table would
+            for (int k = 0; k < 3 && !list.isEmpty(); k++) {
+                list.get(random.nextInt(list.size()));
+            }
+
+            if (applyAll(list) == -2) {
+                reloads++;
+                list = PagedSummaryList.load(databaseService, PAGE_SIZE);
+                mirror.clear();
+                mirror.addAll(list);
+                mirror(list, mirror);
+            }
+
+            List<PasswordSummary> expected = listing();
+            assertEquals(expected, new ArrayList<>(list), "list at step " + step);
+            assertEquals(expected, mirror, "change events at step " + step);
+        }
+        // Updates target rows the list has shown, so reloads stay rare
+        assertTrue(reloads < 60, "reloads " + reloads);
+    }
+
+    /** Apply the changes published since the last call, returning the last result. */
+    private int applyAll(PagedSummaryList list) throws Exception {
+        int result = -1;
+        for (VaultChange change : changes) {
+            result = list.apply(change);
+            if (result == -2) {
+                break;
+            }
+        }
+        changes.clear();
+        return result;
+    }
+
+    private List<PasswordSummary> listing() throws Exception {
+        return databaseService.getSummariesPage(null, Integer.MAX_VALUE);
+    }
+
+    private static List<String> record(PagedSummaryList list) {
+        List<String> fired = new ArrayList<>();
+        list.addListener((ListChangeListener<PasswordSummary>) change -> {
+            while (change.next()) {
+                if (change.wasRemoved()) {
+                    fired.add("remove " + change.getFrom());
+                }
+                if (change.wasAdded()) {
+                    fired.add("add " + change.getFrom());
+                }
+            }
+        });
+        return fired;
+    }
+
+    /** Keep a plain copy in step using only the list's change events. */
+    private static void mirror(PagedSummaryList list, List<PasswordSummary> mirror) {
+        list.addListener((ListChangeListener<PasswordSummary>) change -> {
+            while (change.next()) {
+                for (int i = 0; i < change.getRemovedSize(); i++) {
+                    mirror.remove(change.getFrom());
+                }
+                for (int i = change.getFrom(); i < change.getTo() && change.wasAdded(); i++) {
+                    mirror.add(i, list.get(i));
+                }
+            }
+        });
+    }
+
+    /** Updates are told apart by updated_at, so make sure the clock has moved on. */
+    private static void waitForClockTick(PasswordSummary row) throws InterruptedException {
+        while (System.currentTimeMillis() <= row.getUpdatedAt()) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static PasswordEntry entry(String title) {
+        return new PasswordEntry(title, "site", "user", new byte[16], new byte[16], "General", null);
+    }
+}
@@ -0,0 +1,110 @@
+package com.iftakher.passwordmanager.services;
+
+import com.iftakher.passwordmanager.models.PasswordEntry;
+import com.iftakher.passwordmanager.models.PasswordSummary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DatabaseServicePagingTest {
+    private static final int ENTRY_COUNT = 1000;
+    private static final int PAGE_SIZE = 100;
+
+    @TempDir
+    Path dir;
+
+    private DatabaseService databaseService;
+    // Every row in (title, id) order, as the listing shows them
+    private List<PasswordSummary> expected;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        databaseService = new DatabaseService(dir.resolve("vault.db"));
+        Random random = new Random(3);
+        List<PasswordEntry> entries = new ArrayList<>();
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            // Few distinct titles, so many rows are ordered by id alone
+            entries.add(new PasswordEntry("title " + random.nextInt(50), "site", "user" + i,
+                new byte[16], new byte[16], "General", null));
+        }
+        databaseService.addPasswords(entries, ProgressListener.NONE);
+
+        expected = new ArrayList<>();
+        for (PasswordEntry entry : databaseService.getAllPasswords()) {
+            expected.add(PasswordSummary.of(entry));
+        }
+        expected.sort(Comparator.comparing(PasswordSummary::getTitle).thenComparingLong(PasswordSummary::getId));
+    }
+
+    @AfterEach
+    void tearDown() {
+        databaseService.close();
+    }
+
+    @Test
+    void pagesThroughEveryRowInOrder() throws Exception {
+        List<PasswordSummary> read = new ArrayList<>();
+        DatabaseService.SortKey after = null;
+        while (true) {
+            List<PasswordSummary> page = databaseService.getSummariesPage(after, PAGE_SIZE - 1);
+            if (page.isEmpty()) {
+                break;
+            }
+            read.addAll(page);
+            after = DatabaseService.SortKey.of(page.get(page.size() - 1));
+        }
+
+        assertEquals(expected, read);
+    }
+
+    @Test
+    void boundariesEndEveryFullPage() throws Exception {
+        List<DatabaseService.SortKey> boundaries = databaseService.getPageBoundaries(PAGE_SIZE);
+
+        assertEquals(ENTRY_COUNT / PAGE_SIZE, boundaries.size());
+        for (int page = 0; page < boundaries.size(); page++) {
+            PasswordSummary last = expected.get((page + 1) * PAGE_SIZE - 1);
+            assertEquals(last.getTitle(), boundaries.get(page).getTitle());
+            assertEquals(last.getId(), boundaries.get(page).getId());
+        }
+    }
+
+    @Test
+    void boundarySeekReadsThatPage() throws Exception {
+        List<DatabaseService.SortKey> boundaries = databaseService.getPageBoundaries(PAGE_SIZE);
+
+        List<PasswordSummary> fifth = databaseService.getSummariesPage(boundaries.get(3), PAGE_SIZE);
+
+        assertEquals(expected.subList(4 * PAGE_SIZE, 5 * PAGE_SIZE), fifth);
+    }
+
+    @Test
+    void countBeforeIsTheListingIndex() throws Exception {
+        for (int index = 0; index < ENTRY_COUNT; index += 37) {
+            assertEquals(index, databaseService.countBefore(DatabaseService.SortKey.of(expected.get(index))));
+        }
+        assertEquals(0, databaseService.countBefore(new DatabaseService.SortKey("", 0)));
+        assertEquals(ENTRY_COUNT, databaseService.countBefore(new DatabaseService.SortKey("~", 0)));
+    }
+
+    @Test
+    void countBeforeOfMissingKeyIsWhereItWouldGo() throws Exception {
+        PasswordSummary row = expected.get(500);
+        // Same title, an id past every row: after all rows with that title
+        int index = databaseService.countBefore(new DatabaseService.SortKey(row.getTitle(), Long.MAX_VALUE));
+
+        assertTrue(index > 500);
+        assertEquals(row.getTitle(), expected.get(index - 1).getTitle());
+        assertTrue(index == ENTRY_COUNT || !row.getTitle().equals(expected.get(index).getTitle()));
+    }
+}
@@ -0,0 +1,117 @@
+package com.iftakher.passwordmanager.services;
+
+import com.iftakher.passwordmanager.models.PasswordEntry;
+import com.iftakher.passwordmanager.models.PasswordSummary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class DatabaseServiceSearchTest {
+
+    @TempDir
+    Path dir;
+
+    private DatabaseService databaseService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        databaseService = new DatabaseService(dir.resolve("vault.db"));
+        add("Mail", "mail.example", "me", "Email", null);
+        add("Personal", "accounts.google.com", "me@gmail.com", "Email", null);
+        add("GitHub", "github.com", "octo", "Work", "recovery codes in the safe");
+        add("Bank", "bank.example", "customer", "Banking", null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        databaseService.close();
+    }
+
+    @Test
+    void ftsQueryQuotesEachWordAsPrefix() {
+        assertEquals("\"git\"*", DatabaseService.ftsQuery("git"));
+        assertEquals("\"git\"* \"hub\"*", DatabaseService.ftsQuery("  git   hub "));
+        assertEquals("\"me\"* \"gmail\"* \"com\"*", DatabaseService.ftsQuery("me@gmail.com"));
+        assertEquals("\"café\"*", DatabaseService.ftsQuery("café"));
+    }
+
+    @Test
+    void ftsQueryIsNullWithoutWords() {
+        assertNull(DatabaseService.ftsQuery(null));
+        assertNull(DatabaseService.ftsQuery(""));
+        assertNull(DatabaseService.ftsQuery("   "));
+        assertNull(DatabaseService.ftsQuery("@ \" *"));
+    }
+
+    @Test
+    void ftsSubstringQueryNeedsThreeCharactersPerWord() {
+        assertEquals("\"mail\"", DatabaseService.ftsSubstringQuery("mail"));
+        assertEquals("\"gma\" \"com\"", DatabaseService.ftsSubstringQuery("gma.com"));
+        assertNull(DatabaseService.ftsSubstringQuery("ma"));
+        assertNull(DatabaseService.ftsSubstringQuery("gmail co"));
+        assertNull(DatabaseService.ftsSubstringQuery(" "));
+        assertNull(DatabaseService.ftsSubstringQuery(null));
+    }
+
+    @Test
+    void wordMatchesComeBeforeMatchesInsideWords() throws Exception {
+        assertEquals(List.of("Mail", "Personal"), titles(databaseService.searchPasswords("mail")));
+    }
+
+    @Test
+    void shortWordsOnlyMatchWordStarts() throws Exception {
+        assertEquals(List.of("GitHub"), titles(databaseService.searchPasswords("gi")));
+        assertEquals(List.of(), titles(databaseService.searchPasswords("ub")));
+    }
+
+    @Test
+    void matchesEveryWordAcrossFields() throws Exception {
+        assertEquals(List.of("GitHub"), titles(databaseService.searchPasswords("octo recovery")));
+        assertEquals(List.of(), titles(databaseService.searchPasswords("octo bank")));
+    }
+
+    @Test
+    void findsEditedAndDeletedRowsThroughTheTriggers() throws Exception {
+        PasswordEntry bank = databaseService.getPassword(databaseService.searchPasswords("bank").get(0).getId());
+        bank.setWebsite("mybank.example");
+        databaseService.updatePassword(bank);
+
+        assertEquals(List.of("Bank"), titles(databaseService.searchPasswords("ybank")));
+
+        databaseService.deletePassword(bank.getId());
+
+        assertEquals(List.of(), titles(databaseService.searchPasswords("ybank")));
+    }
+
+    @Test
+    void queryWithoutWordsFallsBackToSubstring() throws Exception {
+        assertEquals(List.of("Personal"), titles(databaseService.searchPasswords("@")));
+    }
+
+    @Test
+    void blankQueryListsEverythingInTitleOrder() throws Exception {
+        assertEquals(List.of("Bank", "GitHub", "Mail", "Personal"), titles(databaseService.searchPasswords(" ")));
+    }
+
+    private void add(String title, String website, String username, String category, String notes)
+            throws Exception {
+        databaseService.addPassword(new PasswordEntry(title, website, username, new byte[16], new byte[16],
+            category, notes));
+    }
+
+    private static List<String> titles(List<PasswordSummary> summaries) {
+        List<String> titles = new ArrayList<>();
+        for (PasswordSummary summary : summaries) {
+            titles.add(summary.getTitle());
+        }
+        return titles;
+    }
+}
@@ -0,0 +1,68 @@
+package com.iftakher.passwordmanager.services;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class EncryptionServiceTest {
+
+    @Test
+    void fingerprintsSurviveForgettingKeys() throws Exception {
+        SecretKey key = EncryptionService.aesKey(new byte[32]);
+        EncryptionService.EncryptedData data = EncryptionService.encryptData("secret", key);
+        // Fill the cache of a pool thread as well as this one
+        byte[] pooled = CompletableFuture.supplyAsync(() -> fingerprint(data, key)).get();
+
+        EncryptionService.forgetKeys();
+
+        assertArrayEquals(data.getFingerprint(), pooled);
+        assertArrayEquals(data.getFingerprint(), EncryptionService.fingerprint(data, key));
+        assertArrayEquals(data.getFingerprint(), CompletableFuture.supplyAsync(() -> fingerprint(data, key)).get());
+    }
+
+    @Test
+    void fingerprintsDependOnTheVaultKey() throws Exception {
+        byte[] otherKeyBytes = new byte[32];
+        otherKeyBytes[0] = 1;
+        SecretKey key = EncryptionService.aesKey(new byte[32]);
+        SecretKey otherKey = EncryptionService.aesKey(otherKeyBytes);
+        EncryptionService.EncryptedData data = EncryptionService.encryptData("secret", key);
+        EncryptionService.EncryptedData other = EncryptionService.encryptData("secret", otherKey);
+
+        assertFalse(Arrays.equals(data.getFingerprint(), other.getFingerprint()));
+        assertArrayEquals(data.getFingerprint(), EncryptionService.fingerprint(data, key));
+    }
+
+    @Test
+    void forgettingKeysReplacesEveryThreadsCiphers() throws Exception {
+        SecretKey key = EncryptionService.aesKey(new byte[32]);
+        Cipher cbc = EncryptionService.cbcCipher();
+        Cipher gcm = EncryptionService.gcmCipher();
+        EncryptionService.EncryptedData data = EncryptionService.encryptData("secret", key);
+
+        // Logout runs on another thread than the one that used the ciphers
+        CompletableFuture.runAsync(EncryptionService::forgetKeys).get();
+
+        assertNotSame(cbc, EncryptionService.cbcCipher());
+        assertNotSame(gcm, EncryptionService.gcmCipher());
+        assertSame(EncryptionService.cbcCipher(), EncryptionService.cbcCipher());
+        assertEquals("secret", EncryptionService.decryptData(data, key));
+    }
+
+    private static byte[] fingerprint(EncryptionService.EncryptedData data, SecretKey key) {
+        try {
+            return EncryptionService.fingerprint(data, key);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
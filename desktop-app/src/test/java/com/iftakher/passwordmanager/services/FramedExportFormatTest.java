@@ -0,0 +1,233 @@
+package com.iftakher.passwordmanager.services;
+
+import com.google.gson.Gson;
+import com.iftakher.passwordmanager.models.EncryptedPasswordDto;
+import com.iftakher.passwordmanager.models.ExportData;
+import com.iftakher.passwordmanager.models.PasswordEntry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FramedExportFormatTest {
+    // Two full frames and a partial one
+    private static final int ENTRY_COUNT = 600;
+    private static final int ENTRIES_PER_FRAME = 256;
+    private static final byte[] MAGIC = {'P', 'P', 'H', 'X'};
+
+    @TempDir
+    Path dir;
+
+    private SecretKey key;
+    private List<PasswordEntry> entries;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        key = randomKey();
+        entries = new ArrayList<>(ENTRY_COUNT);
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            EncryptionService.EncryptedData data = EncryptionService.encryptData("secret-" + i, key);
+            PasswordEntry entry = new PasswordEntry("Title " + i, "site" + i + ".example", "user" + i,
+                data.getEncryptedData(), data.getIv(), "General", "notes " + i);
+            entry.setId(i + 1);
+            entries.add(entry);
+        }
+    }
+
+    @Test
+    void roundTripsEveryEntry() throws Exception {
+        Path file = export();
+
+        assertTrue(ImportExportService.isExportFile(file.toString()));
+        assertEquals(3, FramedExportFormat.getEntryFrameCount(file));
+        assertImported(ImportExportService.importFromFile(file.toString(), key));
+        try (ImportExportService.ImportReader reader = ImportExportService.openImport(file.toString(), key)) {
+            assertEquals(FramedExportFormat.VERSION, reader.getVersion());
+        }
+    }
+
+    @Test
+    void readsSingleFrameThroughIndex() throws Exception {
+        Path file = export();
+
+        List<PasswordEntry> last = FramedExportFormat.readFrame(file, key, 2);
+
+        assertEquals(ENTRY_COUNT - 2 * ENTRIES_PER_FRAME, last.size());
+        assertEquals("Title " + 2 * ENTRIES_PER_FRAME, last.get(0).getTitle());
+    }
+
+    @Test
+    void replacesExistingFileWithoutLeavingTemporaryFiles() throws Exception {
+        Path file = dir.resolve("vault.enc");
+        Files.write(file, new byte[] {1, 2, 3});
+
+        ImportExportService.exportToFile(entries, file.toString(), key, "test");
+
+        assertTrue(ImportExportService.isExportFile(file.toString()));
+        try (var files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void rejectsWrongKey() throws Exception {
+        Path file = export();
+
+        assertThrows(Exception.class, () -> ImportExportService.importFromFile(file.toString(), randomKey()));
+    }
+
+    @Test
+    void rejectsTamperedFrame() throws Exception {
+        Path file = export();
+        byte[] bytes = Files.readAllBytes(file);
+        // Well inside the first entry frame, past the header and the small metadata frame
+        bytes[bytes.length / 3] ^= 1;
+        Files.write(file, bytes);
+
+        assertThrows(IllegalStateException.class, () -> ImportExportService.importFromFile(file.toString(), key));
+    }
+
+    @Test
+    void rejectsTruncatedFile() throws Exception {
+        Path file = export();
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+
+        assertFalse(ImportExportService.isExportFile(file.toString()));
+        assertThrows(Exception.class, () -> ImportExportService.importFromFile(file.toString(), key));
+    }
+
+    @Test
+    void failsEntryWhosePasswordDoesNotDecrypt() throws Exception {
+        // Not a whole number of blocks, so decryption always fails
+        entries.get(300).setEncryptedPassword(new byte[17]);
+        Path file = export();
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+            () -> ImportExportService.importFromFile(file.toString(), key));
+        assertTrue(e.getMessage().contains("entry 300"), e.getMessage());
+        assertFalse(e.getMessage().contains("Title 300"), e.getMessage());
+    }
+
+    @Test
+    void importsLegacyV1Export() throws Exception {
+        Path file = dir.resolve("v1.enc");
+        List<EncryptedPasswordDto> dtos = new ArrayList<>();
+        for (PasswordEntry entry : entries) {
+            dtos.add(ImportExportService.toDto(entry));
+        }
+        byte[] json = new Gson().toJson(new ExportData(1, System.currentTimeMillis(), "test", dtos))
+            .getBytes(StandardCharsets.UTF_8);
+        byte[] iv = EncryptionService.generateIv();
+        Cipher cipher = EncryptionService.initCipher(Cipher.ENCRYPT_MODE, key, iv);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(iv);
+        out.write(cipher.doFinal(json));
+        Files.write(file, out.toByteArray());
+
+        assertTrue(ImportExportService.isExportFile(file.toString()));
+        assertImported(ImportExportService.importFromFile(file.toString(), key));
+    }
+
+    @Test
+    void importsUnsaltedV2Export() throws Exception {
+        Path file = dir.resolve("v2.enc");
+        Files.write(file, unsaltedExport());
+
+        assertTrue(ImportExportService.isExportFile(file.toString()));
+        assertImported(ImportExportService.importFromFile(file.toString(), key));
+        assertEquals(ENTRIES_PER_FRAME, FramedExportFormat.readFrame(file, key, 1).size());
+    }
+
+    private Path export() throws Exception {
+        Path file = dir.resolve("vault.enc");
+        ImportExportService.exportToFile(entries, file.toString(), key, "test");
+        return file;
+    }
+
+    private void assertImported(List<PasswordEntry> imported) throws Exception {
+        assertEquals(ENTRY_COUNT, imported.size());
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            PasswordEntry entry = imported.get(i);
+            assertEquals(i + 1, entry.getId());
+            assertEquals("Title " + i, entry.getTitle());
+            assertEquals("site" + i + ".example", entry.getWebsite());
+            assertEquals("notes " + i, entry.getNotes());
+            EncryptionService.EncryptedData data =
+                new EncryptionService.EncryptedData(entry.getEncryptedPassword(), entry.getEncryptionIv());
+            assertEquals("secret-" + i, EncryptionService.decryptData(data, key));
+            assertNotNull(entry.getPasswordFingerprint());
+            assertArrayEquals(EncryptionService.fingerprint(data, key), entry.getPasswordFingerprint());
+        }
+    }
+
+    /**
+     * A version 2 file as written before the salted header: frames sealed under the vault
+     * key itself, with the 16 byte header in their associated data.
+     */
+    private byte[] unsaltedExport() throws Exception {
+        byte[] header = ByteBuffer.allocate(16).put(MAGIC).putInt(2).putInt(ENTRIES_PER_FRAME).putInt(0).array();
+        Gson gson = new Gson();
+        List<byte[]> frames = new ArrayList<>();
+        frames.add(gson.toJson(new ExportData(2, System.currentTimeMillis(), "test", null))
+            .getBytes(StandardCharsets.UTF_8));
+        for (int from = 0; from < ENTRY_COUNT; from += ENTRIES_PER_FRAME) {
+            List<EncryptedPasswordDto> chunk = new ArrayList<>();
+            for (PasswordEntry entry : entries.subList(from, Math.min(from + ENTRIES_PER_FRAME, ENTRY_COUNT))) {
+                chunk.add(ImportExportService.toDto(entry));
+            }
+            frames.add(gson.toJson(chunk).getBytes(StandardCharsets.UTF_8));
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(header);
+        List<Long> offsets = new ArrayList<>();
+        for (int index = 0; index < frames.size(); index++) {
+            byte[] nonce = new byte[12];
+            EncryptionService.nextBytes(nonce);
+            Cipher cipher = EncryptionService.gcmCipher();
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, nonce));
+            cipher.updateAAD(ByteBuffer.allocate(header.length + 5)
+                .put(header).putInt(index).put((byte) (index == frames.size() - 1 ? 1 : 0)).array());
+            byte[] sealed = cipher.doFinal(frames.get(index));
+            offsets.add((long) out.size());
+            out.writeInt(nonce.length + sealed.length);
+            out.write(nonce);
+            out.write(sealed);
+        }
+        long indexOffset = out.size();
+        for (long offset : offsets) {
+            out.writeLong(offset);
+        }
+        out.writeLong(indexOffset);
+        out.writeInt(frames.size());
+        out.write(MAGIC);
+        return bytes.toByteArray();
+    }
+
+    private static SecretKey randomKey() {
+        byte[] bytes = new byte[32];
+        EncryptionService.nextBytes(bytes);
+        return EncryptionService.aesKey(bytes);
+    }
+}
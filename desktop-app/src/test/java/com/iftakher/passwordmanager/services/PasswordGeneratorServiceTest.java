@@ -0,0 +1,114 @@
+package com.iftakher.passwordmanager.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordGeneratorServiceTest {
+    private static final String UPPERCASE = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    private static final String NUMBERS = "0123456789";
+    private static final String SYMBOLS = "!@#$%^&*()_+-=[]{}|;:,.<>?";
+
+    /** Hands out the given bytes in order, so the rejection path can be driven exactly. */
+    private static final class FixedBytes extends SecureRandom {
+        private final Deque<Integer> bytes = new ArrayDeque<>();
+
+        FixedBytes(int... values) {
+            for (int value : values) {
+                bytes.add(value);
+            }
+        }
+
+        @Override
+        public void nextBytes(byte[] out) {
+            for (int i = 0; i < out.length; i++) {
+                out[i] = bytes.isEmpty() ? 0 : (byte) (int) bytes.poll();
+            }
+        }
+    }
+
+    @Test
+    void generatedPasswordsHaveEverySelectedSetAndNoOther() {
+        for (int mask = 0; mask < 8; mask++) {
+            boolean upper = (mask & 1) != 0;
+            boolean numbers = (mask & 2) != 0;
+            boolean symbols = (mask & 4) != 0;
+            for (int i = 0; i < 200; i++) {
+                // The shortest length, so the guaranteed characters are most of the password
+                String password = new String(PasswordGeneratorService.generateChars(
+                    PasswordGeneratorService.MIN_LENGTH, upper, numbers, symbols));
+
+                assertEquals(PasswordGeneratorService.MIN_LENGTH, password.length());
+                assertTrue(password.chars().anyMatch(c -> c >= 'a' && c <= 'z'), password);
+                assertEquals(upper, password.chars().anyMatch(c -> UPPERCASE.indexOf(c) >= 0), password);
+                assertEquals(numbers, password.chars().anyMatch(c -> NUMBERS.indexOf(c) >= 0), password);
+                assertEquals(symbols, password.chars().anyMatch(c -> SYMBOLS.indexOf(c) >= 0), password);
+            }
+        }
+    }
+
+    @Test
+    void lengthOutsideTheLimitsIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> PasswordGeneratorService.generateChars(
+            PasswordGeneratorService.MIN_LENGTH - 1, true, true, true));
+        assertThrows(IllegalArgumentException.class, () -> PasswordGeneratorService.generateChars(
+            PasswordGeneratorService.MAX_LENGTH + 1, true, true, true));
+        assertEquals(PasswordGeneratorService.MAX_LENGTH,
+            PasswordGeneratorService.generateChars(PasswordGeneratorService.MAX_LENGTH, false, false, false).length);
+    }
+
+    @Test
+    void nextIntRejectsTheTopPartialRun() {
+        // 256 % 200 = 56: bytes 200-255 would make 0-55 twice as likely, so they are skipped
+        PasswordGeneratorService.RandomSource random =
+            new PasswordGeneratorService.RandomSource(new FixedBytes(255, 200, 199, 7));
+
+        assertEquals(199, random.nextInt(200));
+        assertEquals(7, random.nextInt(200));
+    }
+
+    @Test
+    void nextIntUsesTwoBytesForLargeBounds() {
+        // 65536 - 65536 % 7776 = 62208 is the first rejected value
+        PasswordGeneratorService.RandomSource random = new PasswordGeneratorService.RandomSource(
+            new FixedBytes(0xF3, 0x00, 0xF2, 0xFF, 0x00, 0x05));
+
+        assertEquals(0xF2FF % 7776, random.nextInt(7776));
+        assertEquals(5, random.nextInt(7776));
+    }
+
+    @Test
+    void nextIntIsUniform() {
+        PasswordGeneratorService.RandomSource random = new PasswordGeneratorService.RandomSource();
+        int samples = 200_000;
+        int low = 0;
+        for (int i = 0; i < samples; i++) {
+            int value = random.nextInt(200);
+            assertTrue(value >= 0 && value < 200);
+            if (value < 56) {
+                low++;
+            }
+        }
+
+        // Uniform gives 28%; taking every byte modulo 200 would give about 44%
+        assertEquals(0.28, low / (double) samples, 0.01);
+    }
+
+    @Test
+    void passphraseHasTheRequestedWords() {
+        String passphrase = new String(PasswordGeneratorService.generatePassphrase(6, '-', true, true));
+        String[] words = passphrase.split("-");
+
+        assertEquals(6, words.length);
+        for (String word : words) {
+            assertTrue(Character.isUpperCase(word.charAt(0)), passphrase);
+        }
+        assertEquals(1, passphrase.chars().filter(Character::isDigit).count(), passphrase);
+    }
+}
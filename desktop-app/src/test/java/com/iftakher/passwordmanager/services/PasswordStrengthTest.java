@@ -0,0 +1,118 @@
+package com.iftakher.passwordmanager.services;
+
+import com.iftakher.passwordmanager.services.PasswordStrength.Weakness;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordStrengthTest {
+    private static final double DELTA = 0.01;
+
+    @Test
+    void repeatedCharacterIsCappedByFewDistinct() {
+        PasswordStrength strength = PasswordStrength.of("aaaaaaaa");
+
+        // One distinct character is worth at most a bit each
+        assertEquals(8, strength.getEntropyBits(), DELTA);
+        assertEquals(10, strength.getScore());
+        assertEquals("Very Weak", strength.getLabel());
+        assertEquals(EnumSet.of(Weakness.REPEATS, Weakness.FEW_DISTINCT, Weakness.NO_UPPERCASE,
+            Weakness.NO_DIGITS, Weakness.NO_SYMBOLS), strength.getWeaknesses());
+    }
+
+    @Test
+    void runCountsOneBitFromItsThirdCharacter() {
+        PasswordStrength strength = PasswordStrength.of("12345678");
+
+        assertEquals(2 * log2(10) + 6, strength.getEntropyBits(), DELTA);
+        assertEquals("Very Weak", strength.getLabel());
+        assertEquals(EnumSet.of(Weakness.SEQUENCES, Weakness.NO_LOWERCASE, Weakness.NO_UPPERCASE,
+            Weakness.NO_SYMBOLS), strength.getWeaknesses());
+    }
+
+    @Test
+    void runRestartsAfterAJump() {
+        // abc, then a jump back to a: only each c is a third step
+        PasswordStrength strength = PasswordStrength.of("abcabc");
+
+        assertEquals(4 * log2(26) + 2, strength.getEntropyBits(), DELTA);
+        assertEquals("Very Weak", strength.getLabel());
+        assertTrue(strength.isWeak());
+        assertEquals(EnumSet.of(Weakness.TOO_SHORT, Weakness.SEQUENCES, Weakness.NO_UPPERCASE,
+            Weakness.NO_DIGITS, Weakness.NO_SYMBOLS), strength.getWeaknesses());
+    }
+
+    @Test
+    void runNeedsTheSameStep() {
+        // Each pair steps by one, but up then down is not a run
+        assertEquals(8 * log2(26), PasswordStrength.of("abaxyxpq").getEntropyBits(), DELTA);
+        assertEquals(8 * log2(26) - (log2(26) - 1), PasswordStrength.of("cbahqwmz").getEntropyBits(), DELTA);
+    }
+
+    @Test
+    void emptyPasswordIsOnlyTooShort() {
+        PasswordStrength strength = PasswordStrength.of("");
+
+        assertEquals(0, strength.getEntropyBits());
+        assertEquals(0, strength.getScore());
+        assertEquals("Very Weak", strength.getLabel());
+        assertEquals(EnumSet.of(Weakness.TOO_SHORT), strength.getWeaknesses());
+        assertEquals(strength.getWeaknesses(), PasswordStrength.of((CharSequence) null).getWeaknesses());
+    }
+
+    @Test
+    void nonAsciiCharactersUseTheirOwnPool() {
+        PasswordStrength strength = PasswordStrength.of("日本語のパスワード");
+
+        assertEquals(9 * log2(100), strength.getEntropyBits(), DELTA);
+        assertEquals(75, strength.getScore());
+        assertEquals("Good", strength.getLabel());
+        assertEquals(EnumSet.of(Weakness.NO_LOWERCASE, Weakness.NO_UPPERCASE, Weakness.NO_DIGITS,
+            Weakness.NO_SYMBOLS), strength.getWeaknesses());
+    }
+
+    @Test
+    void randomTwentyCharacterPasswordIsVeryStrong() {
+        PasswordStrength strength = PasswordStrength.of("q7#Vx9!mR2$kL5@wT8&z");
+
+        assertEquals(20 * log2(95), strength.getEntropyBits(), DELTA);
+        assertEquals(100, strength.getScore());
+        assertEquals("Very Strong", strength.getLabel());
+        assertFalse(strength.isWeak());
+        assertTrue(strength.getWeaknesses().isEmpty());
+    }
+
+    @Test
+    void generatedPasswordsAreVeryStrong() {
+        for (int i = 0; i < 500; i++) {
+            char[] password = PasswordGeneratorService.generateChars(20, true, true, true);
+            assertEquals("Very Strong", PasswordStrength.of(password).getLabel(), new String(password));
+        }
+    }
+
+    @Test
+    void labelsFollowTheBitThresholds() {
+        // No repeats or runs, so each is length * log2(pool)
+        assertEquals("Very Weak", PasswordStrength.of("90517384").getLabel());
+        assertEquals("Weak", PasswordStrength.of("9051738462").getLabel());
+        assertEquals("Fair", PasswordStrength.of("qwmpzkfj").getLabel());
+        assertEquals("Good", PasswordStrength.of("q7m2z9k4f0").getLabel());
+        assertEquals("Strong", PasswordStrength.of("q7M2z9K4f0Wx").getLabel());
+        assertEquals("Very Strong", PasswordStrength.of("q7M2z9K4f0Wx%j").getLabel());
+    }
+
+    @Test
+    void weakMeansUnderFiftyBitsOrTooShort() {
+        assertTrue(PasswordStrength.of("qwmpzkfj").isWeak());
+        assertFalse(PasswordStrength.of("q7m2z9k4f0").isWeak());
+        assertTrue(PasswordStrength.of("Q7#m2!z").isWeak());
+    }
+
+    private static double log2(double value) {
+        return Math.log(value) / Math.log(2);
+    }
+}
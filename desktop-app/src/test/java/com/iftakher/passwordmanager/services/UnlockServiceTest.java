@@ -0,0 +1,208 @@
+package com.iftakher.passwordmanager.services;
+
+import com.google.gson.Gson;
+import com.iftakher.passwordmanager.models.EncryptedPasswordDto;
+import com.iftakher.passwordmanager.models.ExportData;
+import com.iftakher.passwordmanager.models.PasswordEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UnlockServiceTest {
+    private static final String PASSWORD = "correct horse battery staple";
+    private static final int LEGACY_HASH_ITERATIONS = 65536;
+
+    @TempDir
+    Path dir;
+
+    private DatabaseService databaseService;
+    private UnlockService unlockService;
+
+    @BeforeEach
+    void setUp() {
+        databaseService = new DatabaseService(dir.resolve("vault.db"));
+        unlockService = new UnlockService(databaseService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        databaseService.close();
+    }
+
+    @Test
+    void firstUnlockSetsThePassword() throws Exception {
+        assertFalse(unlockService.isMasterPasswordSet());
+
+        SecretKey key = unlockService.unlock(PASSWORD, ProgressListener.NONE);
+
+        assertNotNull(key);
+        assertTrue(unlockService.isMasterPasswordSet());
+        assertArrayEquals(key.getEncoded(), unlockService.unlock(PASSWORD, ProgressListener.NONE).getEncoded());
+        assertNull(unlockService.unlock("wrong", ProgressListener.NONE));
+    }
+
+    @Test
+    void migratesSaltedLegacyVault() throws Exception {
+        legacyVault(100);
+        assertTrue(unlockService.isMasterPasswordSet());
+
+        assertNull(unlockService.unlock("wrong", ProgressListener.NONE));
+        assertNull(databaseService.getSetting(UnlockService.KDF_VERSION_KEY));
+
+        SecretKey key = unlockService.unlock(PASSWORD, ProgressListener.NONE);
+
+        assertNotNull(key);
+        Map<String, String> settings = databaseService.getSettings(
+            UnlockService.KDF_VERSION_KEY, UnlockService.LEGACY_HASH_KEY, UnlockService.VERIFIER_KEY);
+        assertEquals("2", settings.get(UnlockService.KDF_VERSION_KEY));
+        assertEquals("", settings.get(UnlockService.LEGACY_HASH_KEY));
+        assertNotNull(settings.get(UnlockService.VERIFIER_KEY));
+        assertSecretsUnder(key, databaseService.getAllPasswords());
+
+        // Later unlocks take the single-derivation path
+        assertArrayEquals(key.getEncoded(), unlockService.unlock(PASSWORD, ProgressListener.NONE).getEncoded());
+        assertNull(unlockService.unlock("wrong", ProgressListener.NONE));
+    }
+
+    @Test
+    void importsExportMadeBeforeMigration() throws Exception {
+        SecretKey legacyKey = legacyVault(20);
+        Path export = dir.resolve("backup.enc");
+        writeV1Export(databaseService.getAllPasswords(), legacyKey, export);
+        assertFalse(unlockService.hasLegacyExportKey());
+        assertNull(unlockService.legacyExportKey(PASSWORD));
+
+        SecretKey key = unlockService.unlock(PASSWORD, ProgressListener.NONE);
+
+        assertTrue(unlockService.hasLegacyExportKey());
+        assertTrue(ImportExportService.needsLegacyKey(export.toString(), key));
+        assertThrows(Exception.class, () -> ImportExportService.importFromFile(export.toString(), key));
+        List<PasswordEntry> imported = new ArrayList<>();
+        try (ImportExportService.ImportReader reader = ImportExportService.openImport(
+                export.toString(), key, unlockService.legacyExportKey(PASSWORD))) {
+            reader.forEach(imported::add);
+        }
+        assertEquals(20, imported.size());
+        assertSecretsUnder(key, imported);
+
+        // The legacy key is still derivable after the master password changes
+        unlockService.changeMasterPassword(PASSWORD, "new password", ProgressListener.NONE);
+        assertArrayEquals(legacyKey.getEncoded(), unlockService.legacyExportKey(PASSWORD).getEncoded());
+    }
+
+    @Test
+    void currentExportNeedsNoLegacyKey() throws Exception {
+        legacyVault(3);
+        SecretKey key = unlockService.unlock(PASSWORD, ProgressListener.NONE);
+        Path export = dir.resolve("current.enc");
+        writeV1Export(databaseService.getAllPasswords(), key, export);
+
+        assertFalse(ImportExportService.needsLegacyKey(export.toString(), key));
+        assertSecretsUnder(key, ImportExportService.importFromFile(export.toString(), key));
+    }
+
+    @Test
+    void migratesPlaintextLegacyPassword() throws Exception {
+        databaseService.saveSetting(UnlockService.LEGACY_HASH_KEY, PASSWORD);
+
+        assertNull(unlockService.unlock("wrong", ProgressListener.NONE));
+        SecretKey key = unlockService.unlock(PASSWORD, ProgressListener.NONE);
+
+        assertNotNull(key);
+        assertEquals("", databaseService.getSetting(UnlockService.LEGACY_HASH_KEY));
+        assertArrayEquals(key.getEncoded(), unlockService.unlock(PASSWORD, ProgressListener.NONE).getEncoded());
+    }
+
+    @Test
+    void migratesUnsaltedSha256Hash() throws Exception {
+        databaseService.saveSetting(UnlockService.LEGACY_HASH_KEY, EncryptionService.hashPassword(PASSWORD));
+
+        SecretKey key = unlockService.unlock(PASSWORD, ProgressListener.NONE);
+
+        assertNotNull(key);
+        assertEquals("2", databaseService.getSetting(UnlockService.KDF_VERSION_KEY));
+    }
+
+    @Test
+    void changeMasterPasswordReKeysEntries() throws Exception {
+        SecretKey oldKey = unlockService.unlock(PASSWORD, ProgressListener.NONE);
+        EncryptionService.EncryptedData data = EncryptionService.encryptData("secret", oldKey);
+        databaseService.addPassword(new PasswordEntry("Title", "", "user", data.getEncryptedData(), data.getIv(),
+            "General", null));
+
+        assertNull(unlockService.changeMasterPassword("wrong", "new password", ProgressListener.NONE));
+        SecretKey newKey = unlockService.changeMasterPassword(PASSWORD, "new password", ProgressListener.NONE);
+
+        assertNotNull(newKey);
+        assertNull(unlockService.unlock(PASSWORD, ProgressListener.NONE));
+        PasswordEntry entry = databaseService.getAllPasswords().get(0);
+        assertEquals("secret", EncryptionService.decryptData(
+            new EncryptionService.EncryptedData(entry.getEncryptedPassword(), entry.getEncryptionIv()), newKey));
+    }
+
+    /**
+     * Set up a vault the way the app stored it before single-derivation unlock, with
+     * entries "Title i" holding "secret-i" under the legacy key. Returns that key.
+     */
+    private SecretKey legacyVault(int entryCount) throws Exception {
+        byte[] salt = EncryptionService.generateSalt();
+        byte[] hash = EncryptionService.pbkdf2(PASSWORD.toCharArray(), salt, LEGACY_HASH_ITERATIONS, 256);
+        databaseService.saveSetting(UnlockService.SALT_KEY, Base64.getEncoder().encodeToString(salt));
+        databaseService.saveSetting(UnlockService.LEGACY_HASH_KEY, Base64.getEncoder().encodeToString(hash));
+        SecretKey legacyKey = EncryptionService.generateKeyFromPassword(PASSWORD, salt);
+        List<PasswordEntry> entries = new ArrayList<>();
+        for (int i = 0; i < entryCount; i++) {
+            EncryptionService.EncryptedData data = EncryptionService.encryptData("secret-" + i, legacyKey);
+            entries.add(new PasswordEntry("Title " + i, "", "user", data.getEncryptedData(), data.getIv(),
+                "General", null));
+        }
+        databaseService.addPasswords(entries, ProgressListener.NONE);
+        return legacyKey;
+    }
+
+    private static void assertSecretsUnder(SecretKey key, List<PasswordEntry> entries) throws Exception {
+        for (PasswordEntry entry : entries) {
+            EncryptionService.EncryptedData data =
+                new EncryptionService.EncryptedData(entry.getEncryptedPassword(), entry.getEncryptionIv());
+            String index = entry.getTitle().substring("Title ".length());
+            assertEquals("secret-" + index, EncryptionService.decryptData(data, key));
+            assertArrayEquals(EncryptionService.fingerprint(data, key), entry.getPasswordFingerprint());
+        }
+    }
+
+    /** Write an export the way versions before the framed format did: IV, then one CBC blob. */
+    private static void writeV1Export(List<PasswordEntry> entries, SecretKey key, Path file) throws Exception {
+        List<EncryptedPasswordDto> dtos = new ArrayList<>();
+        for (PasswordEntry entry : entries) {
+            dtos.add(ImportExportService.toDto(entry));
+        }
+        byte[] json = new Gson().toJson(new ExportData(1, System.currentTimeMillis(), "test", dtos))
+            .getBytes(StandardCharsets.UTF_8);
+        byte[] iv = EncryptionService.generateIv();
+        Cipher cipher = EncryptionService.initCipher(Cipher.ENCRYPT_MODE, key, iv);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(iv);
+        out.write(cipher.doFinal(json));
+        Files.write(file, out.toByteArray());
+    }
+}